@@ -0,0 +1,172 @@
+package ie.atu.sw;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The cave grid, its generator and the plane's position, with no rendering or
+ * timing attached. {@link GameView} draws one of these on the Swing timer, and
+ * {@link FlightSimulator} steps one headlessly from a seed.
+ */
+public class CaveModel {
+	private static final byte ONE_SET = 1;
+	private static final byte ZERO_SET = 0;
+
+	private final GridConfig grid;
+
+	/*
+	 * The game grid is a ring buffer of grid.width() columns, where each column
+	 * is represented by a byte array of size grid.height(). Scrolling the cave
+	 * only moves the head index, so any column can be read in constant time.
+	 */
+	private final byte[][] columns;
+	private int head = 0; // Index in columns of the leftmost visible column.
+
+	private final Random random;
+
+	// Variables for the cavern generator.
+	private int prevTop;
+	private int prevBot;
+
+	private int playerRow;
+	private int lastMovement = 0; // -1 for up, 0 for straight, 1 for down
+
+	public CaveModel(GridConfig grid, Random random) {
+		this.grid = grid;
+		this.random = random;
+		this.columns = new byte[grid.width()][grid.height()];
+		this.prevTop = grid.minTop();
+		this.prevBot = grid.minBottom();
+		this.playerRow = grid.startRow();
+	}
+
+	public GridConfig getGrid() {
+		return grid;
+	}
+
+	/**
+	 * Returns the column at screen position x, 0 being the leftmost.
+	 */
+	public byte[] column(int x) {
+		return columns[(head + x) % columns.length];
+	}
+
+	/**
+	 * Scrolls the cave by one column, recycling the oldest column as the new tail
+	 * and carving the next stretch of cavern into it.
+	 *
+	 * @return the newly generated column.
+	 */
+	public byte[] updateCave() {
+		byte[] nextColumn = columns[head];
+		head = (head + 1) % columns.length;
+		Arrays.fill(nextColumn, ONE_SET);
+
+		// Determine new cavern boundaries.
+		prevTop += random.nextBoolean() ? 1 : -1;
+		prevBot += random.nextBoolean() ? 1 : -1;
+		prevTop = max(grid.minTop(), min(prevTop, prevBot - grid.minSpace()));
+		prevBot = min(grid.minBottom(), max(prevBot, prevTop + grid.minSpace()));
+
+		// Carve out the cavern.
+		Arrays.fill(nextColumn, prevTop, prevBot, ZERO_SET);
+		return nextColumn;
+	}
+
+	/**
+	 * Moves the plane up or down.
+	 * @param step -1 for up, 0 for straight, 1 for down.
+	 */
+	public void move(int step) {
+		playerRow += step;
+		lastMovement = step;
+	}
+
+	public boolean isOutOfBounds() {
+		return playerRow < 0 || playerRow >= grid.height();
+	}
+
+	/**
+	 * Whether the plane is inside an obstacle. Always false when out of bounds.
+	 */
+	public boolean isCollision() {
+		return !isOutOfBounds() && column(grid.playerColumn())[playerRow] != ZERO_SET;
+	}
+
+	public int getPlayerRow() {
+		return playerRow;
+	}
+
+	public int getLastMovement() {
+		return lastMovement;
+	}
+
+	/**
+	 * Clears the grid and puts the plane back at its starting row. The cavern
+	 * generator carries on from where it was.
+	 */
+	public void reset() {
+		for (byte[] column : columns) {
+			Arrays.fill(column, ZERO_SET);
+		}
+		playerRow = grid.startRow();
+	}
+
+	/**
+	 * Samples the entire game grid (flattened).
+	 * @return A double array representation of the grid.
+	 */
+	public double[] sample() {
+		double[] vector = new double[grid.width() * grid.height()];
+		int index = 0;
+		for (int x = 0; x < grid.width(); x++) {
+			for (byte cell : column(x)) {
+				vector[index++] = cell;
+			}
+		}
+		return vector;
+	}
+
+	/**
+	 * Samples the horizon (columns ahead of the player) and appends extra features:
+	 *  - obstacle states for columns ahead
+	 *  - lastMovement
+	 *  - normalized player row
+	 *  - terminalFlag
+	 *  - goodFlag
+	 */
+	public double[] sampleHorizon(boolean terminalFlag, boolean goodFlag) {
+		int horizonStart = grid.playerColumn() + 1;
+		int height = grid.height();
+		double[] features = new double[grid.inputSize()];
+		int index = 0;
+
+		// Append horizon columns.
+		for (int x = horizonStart; x < grid.width(); x++) {
+			byte[] column = column(x);
+			for (int y = 0; y < height; y++) {
+				features[index++] = column[y];
+			}
+		}
+
+		// Append extra features.
+		System.arraycopy(sampleScalars(terminalFlag, goodFlag), 0, features, index, GridConfig.SCALAR_FEATURES);
+		return features;
+	}
+
+	/**
+	 * The extra features that follow the horizon in
+	 * {@link #sampleHorizon(boolean, boolean)}: lastMovement, normalized player
+	 * row, terminalFlag and goodFlag.
+	 */
+	public double[] sampleScalars(boolean terminalFlag, boolean goodFlag) {
+		return new double[] {
+				lastMovement,
+				(double) playerRow / grid.height(),
+				terminalFlag ? 1.0 : 0.0,
+				goodFlag     ? 1.0 : 0.0 };
+	}
+}
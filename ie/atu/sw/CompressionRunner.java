@@ -0,0 +1,138 @@
+package ie.atu.sw;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.encog.neural.networks.BasicNetwork;
+import org.encog.persist.EncogDirectoryPersistence;
+
+import ie.atu.sw.autopilot.InferenceMode;
+import ie.atu.sw.autopilot.MiniBatchTrainer;
+import ie.atu.sw.autopilot.NetworkCompressor;
+import ie.atu.sw.autopilot.NeuralNetworkAutopilot;
+import ie.atu.sw.autopilot.TrainingDataLoader;
+
+/**
+ * Compresses a trained autopilot and checks that it still flies as well.
+ * <p>
+ * The model is pruned against the states in a recorded training CSV and, when a
+ * student size is given, also distilled into a network with that many hidden
+ * units. Candidates are tried smallest first. One is kept only if its greedy
+ * decisions agree with the original's on at least {@link #MIN_AGREEMENT} of the
+ * states and its mean score on the {@link EvaluationHarness} flight suite is not
+ * below the original's. The first to pass is timed against the original and
+ * saved; if none passes, nothing is saved.
+ * <p>
+ * Both models fly the same seeded caves with the same per-flight decision
+ * streams ({@link ie.atu.sw.autopilot.IAutopilotController#startFlight}), so the
+ * score comparison is paired. A candidate with the original's outputs scores
+ * exactly the same, and any difference comes from the models alone.
+ * <p>
+ * Usage: {@code CompressionRunner <model.eg> <data.csv> [studentHidden] [output.eg] [distillEpochs]},
+ * with the cave size taken from {@link GridConfig#fromProperties()}.
+ */
+public class CompressionRunner {
+	/**
+	 * The fraction of states on which a compressed model must pick the original's move.
+	 */
+	public static final double MIN_AGREEMENT = 0.95;
+	private static final int TIMING_PASSES = 5;
+	private static final long DISTILL_SEED = 38L; // fixed so runs on the same model and data can be compared
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.out.println("Usage: CompressionRunner <model.eg> <data.csv> [studentHidden] [output.eg] [distillEpochs]");
+			return;
+		}
+		int studentHidden = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+		String output = args.length > 3 ? args[3] : "autopilot-compressed.eg";
+		int distillEpochs = args.length > 4 ? Integer.parseInt(args[4]) : NetworkCompressor.DEFAULT_DISTILL_EPOCHS;
+		GridConfig grid = GridConfig.fromProperties();
+
+		BasicNetwork teacher = (BasicNetwork) EncogDirectoryPersistence.loadObject(new File(args[0]));
+		grid.requireInputSize(args[0], teacher.getInputCount());
+		double[][] states = new TrainingDataLoader().loadBuffer(args[1], grid.inputSize()).getFeaturesArray();
+		NetworkCompressor compressor = new NetworkCompressor(states);
+		EvaluationHarness harness = new EvaluationHarness(grid, EvaluationHarness.DEFAULT_FLIGHTS);
+		EvaluationHarness.FlightReport original = harness.evaluateFlights(() -> autopilot(teacher));
+		System.out.println("Original:  " + original);
+
+		List<BasicNetwork> candidates = new ArrayList<>();
+		NetworkCompressor.PruneResult pruned = compressor.prune(teacher, NetworkCompressor.DEFAULT_UNIT_THRESHOLD,
+				NetworkCompressor.DEFAULT_WEIGHT_THRESHOLD);
+		System.out.println("Pruned:    " + pruned);
+		candidates.add(pruned.network());
+		if (studentHidden > 0) {
+			BasicNetwork student = compressor.distill(teacher, studentHidden, distillEpochs,
+					MiniBatchTrainer.DEFAULT_BATCH_SIZE, MiniBatchTrainer.DEFAULT_LEARNING_RATE, DISTILL_SEED);
+			System.out.println("Distilled: Hidden units: " + teacher.getLayerNeuronCount(1) + " -> " + studentHidden
+					+ " | Weights: " + NetworkCompressor.weightCount(teacher) + " -> "
+					+ NetworkCompressor.weightCount(student) + " | Epochs: " + distillEpochs);
+			candidates.add(student);
+		}
+		candidates.sort(Comparator.comparingInt(NetworkCompressor::weightCount));
+
+		BasicNetwork compressed = null;
+		for (BasicNetwork candidate : candidates) {
+			if (fliesAsWell(candidate, teacher, original, compressor, harness)) {
+				compressed = candidate;
+				break;
+			}
+		}
+		if (compressed == null) {
+			System.out.println("No compressed model matched the original; nothing saved");
+			return;
+		}
+
+		System.out.printf("Time per decision: original %.2f us | compressed %.2f us%n",
+				microsPerDecision(teacher, states), microsPerDecision(compressed, states));
+		autopilot(compressed).save(output);
+		System.out.println("Saved compressed autopilot (" + compressed.getLayerNeuronCount(1)
+				+ " hidden units) to " + output);
+	}
+
+	// Agreement is checked first, since it is cheap and rules out most bad candidates without flying them.
+	// The flight scores are paired (same caves, same decision draws), so a plain comparison is fair.
+	private static boolean fliesAsWell(BasicNetwork candidate, BasicNetwork teacher,
+			EvaluationHarness.FlightReport original, NetworkCompressor compressor, EvaluationHarness harness)
+			throws InterruptedException {
+		NetworkCompressor.Agreement agreement = compressor.compare(teacher, candidate);
+		String name = candidate.getLayerNeuronCount(1) + " hidden units";
+		System.out.println(name + ": " + agreement);
+		if (agreement.greedyAgreement() < MIN_AGREEMENT) {
+			System.out.printf("%s: rejected, agreement below %.0f%%%n", name, 100 * MIN_AGREEMENT);
+			return false;
+		}
+		EvaluationHarness.FlightReport report = harness.evaluateFlights(() -> autopilot(candidate));
+		System.out.println(name + ": " + report);
+		if (report.meanScore() < original.meanScore()) {
+			System.out.printf("%s: rejected, mean score %.1f below the original's %.1f%n", name,
+					report.meanScore(), original.meanScore());
+			return false;
+		}
+		return true;
+	}
+
+	// Each flight worker gets its own copy, since an Encog network keeps per-call scratch state.
+	private static NeuralNetworkAutopilot autopilot(BasicNetwork network) {
+		return new NeuralNetworkAutopilot((BasicNetwork) network.clone(), NeuralNetworkAutopilot.DEFAULT_MIN_TEMPERATURE,
+				NeuralNetworkAutopilot.DEFAULT_MAX_TEMPERATURE, InferenceMode.DOUBLE, 0);
+	}
+
+	// Single-threaded getMovement over every state; the first pass warms up the JIT and is not timed.
+	private static double microsPerDecision(BasicNetwork network, double[][] states) {
+		NeuralNetworkAutopilot pilot = autopilot(network);
+		long start = 0;
+		for (int pass = 0; pass <= TIMING_PASSES; pass++) {
+			if (pass == 1) {
+				start = System.nanoTime();
+			}
+			for (double[] state : states) {
+				pilot.getMovement(state);
+			}
+		}
+		return (System.nanoTime() - start) / 1e3 / ((double) TIMING_PASSES * states.length);
+	}
+}
@@ -0,0 +1,18 @@
+package ie.atu.sw;
+
+/**
+ * How a headless flight ended.
+ */
+public enum CrashCause {
+	/** Flew into a cave wall. */
+	WALL,
+
+	/** Climbed off the top of the grid. */
+	CEILING,
+
+	/** Dropped off the bottom of the grid. */
+	FLOOR,
+
+	/** Still flying when the simulator's tick limit was reached. */
+	SURVIVED
+}
@@ -0,0 +1,173 @@
+package ie.atu.sw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import ie.atu.sw.autopilot.IAutopilotController;
+import ie.atu.sw.autopilot.InferenceMode;
+import ie.atu.sw.autopilot.NeuralNetworkAutopilot;
+import ie.atu.sw.autopilot.TrainingDataLoader;
+import ie.atu.sw.autopilot.TrainingSample;
+
+/**
+ * Measures a trained autopilot offline.
+ * <p>
+ * Flight evaluation flies a fixed suite of seeded caves in parallel, one
+ * autopilot per worker thread, and reports the distribution of flight
+ * lengths, how the flights ended and the decision throughput. Every flight
+ * restarts the autopilot's sampler and seeds its decisions from the cave seed
+ * ({@link IAutopilotController#startFlight}), so a flight's result does not
+ * depend on which thread flew it or what it flew before. Two runs of the same
+ * model report the same flights; only the timings differ. Label
+ * evaluation replays a held-out sample file and compares the model's greedy
+ * decisions with the recorded movements.
+ * <p>
+ * Usage: {@code EvaluationHarness <model.eg> [heldout.csv] [flights]}, with the
+ * cave size taken from {@link GridConfig#fromProperties()}.
+ */
+public class EvaluationHarness {
+	public static final int DEFAULT_FLIGHTS = 100;
+	private static final int MAX_TICKS = 3000;
+	private static final long SUITE_SEED = 3_000_000L;
+
+	private final int flights;
+	private final FlightSimulator simulator;
+
+	/**
+	 * Summary of a flight evaluation. Flight lengths are in ticks.
+	 *
+	 * @param p10 the 10th percentile, i.e. the tail of short flights
+	 */
+	public record FlightReport(int flights, double meanTicks, double medianTicks, long p10Ticks, long minTicks,
+			long maxTicks, double meanScore, Map<CrashCause, Integer> causes, double decisionsPerSecond,
+			long wallMillis) {
+
+		@Override
+		public String toString() {
+			return String.format("Flights: %d | Ticks mean: %.1f, median: %.1f, p10: %d, min: %d, max: %d"
+					+ " | Mean score: %.1f | Endings: %s | %.0f decisions/s | %d ms",
+					flights, meanTicks, medianTicks, p10Ticks, minTicks, maxTicks, meanScore, causes,
+					decisionsPerSecond, wallMillis);
+		}
+	}
+
+	/**
+	 * Label accuracy over held-out samples. {@code confusion[expected][chosen]}
+	 * counts decisions, with index 0 = up, 1 = straight, 2 = down.
+	 */
+	public record LabelReport(int samples, double accuracy, int[][] confusion) {
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder(String.format("Samples: %d | Accuracy: %.2f%%%n", samples, 100 * accuracy));
+			sb.append("expected \\ chosen      up  straight      down").append(System.lineSeparator());
+			String[] names = { "up", "straight", "down" };
+			for (int i = 0; i < 3; i++) {
+				sb.append(String.format("%-18s%8d%10d%10d%n", names[i], confusion[i][0], confusion[i][1], confusion[i][2]));
+			}
+			return sb.toString();
+		}
+	}
+
+	public EvaluationHarness(GridConfig grid, int flights) {
+		if (flights < 1) {
+			throw new IllegalArgumentException("At least one evaluation flight is needed, got " + flights);
+		}
+		this.flights = flights;
+		this.simulator = new FlightSimulator(grid, MAX_TICKS);
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.out.println("Usage: EvaluationHarness <model.eg> [heldout.csv] [flights]");
+			return;
+		}
+		String modelFile = args[0];
+		int flights = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_FLIGHTS;
+		GridConfig grid = GridConfig.fromProperties();
+		EvaluationHarness harness = new EvaluationHarness(grid, flights);
+
+		NeuralNetworkAutopilot model = NeuralNetworkAutopilot.load(modelFile, InferenceMode.DOUBLE, 0);
+		grid.requireInputSize(modelFile, model.getInputSize());
+		System.out.println(harness.evaluateFlights(() -> NeuralNetworkAutopilot.load(modelFile, InferenceMode.DOUBLE, 0)));
+		if (args.length > 1) {
+			List<TrainingSample> heldOut = new TrainingDataLoader().loadSamples(args[1], grid.inputSize());
+			System.out.print(harness.evaluateLabels(model, heldOut));
+		}
+	}
+
+	/**
+	 * Flies the seeded suite on one thread per core. The flight statistics are
+	 * reproducible for autopilots that seed their decisions in
+	 * {@link IAutopilotController#startFlight}, as the network autopilots do.
+	 *
+	 * @param factory creates an autopilot; called once per worker thread, so
+	 *                each instance is only ever used by one thread
+	 */
+	public FlightReport evaluateFlights(Supplier<? extends IAutopilotController> factory)
+			throws InterruptedException {
+		int threads = Math.min(flights, Runtime.getRuntime().availableProcessors());
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+		ThreadLocal<IAutopilotController> pilots = ThreadLocal.withInitial(factory);
+
+		long start = System.nanoTime();
+		List<FlightResult> results = new ArrayList<>(flights);
+		try {
+			List<Future<FlightResult>> futures = new ArrayList<>(flights);
+			for (int i = 0; i < flights; i++) {
+				long seed = SUITE_SEED + i;
+				futures.add(pool.submit(() -> simulator.fly(pilots.get(), seed)));
+			}
+			for (Future<FlightResult> future : futures) {
+				results.add(future.get());
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Evaluation flight failed", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+		long wallNanos = System.nanoTime() - start;
+		return summarise(results, wallNanos);
+	}
+
+	/**
+	 * Compares the model's greedy decision (its highest output) on every sample
+	 * with the recorded movement. Temperature sampling is bypassed, so the same
+	 * model and file always give the same report and retrains can be compared.
+	 */
+	public LabelReport evaluateLabels(NeuralNetworkAutopilot model, List<TrainingSample> samples) {
+		int[][] confusion = new int[3][3];
+		int correct = 0;
+		for (TrainingSample sample : samples) {
+			int expected = (int) sample.getLabel() + 1;
+			int chosen = model.getGreedyMovement(sample.getFeatures()) + 1;
+			confusion[expected][chosen]++;
+			if (expected == chosen) {
+				correct++;
+			}
+		}
+		return new LabelReport(samples.size(), samples.isEmpty() ? 0 : (double) correct / samples.size(), confusion);
+	}
+
+	private static FlightReport summarise(List<FlightResult> results, long wallNanos) {
+		long[] ticks = results.stream().mapToLong(FlightResult::ticks).sorted().toArray();
+		Map<CrashCause, Integer> causes = new EnumMap<>(CrashCause.class);
+		for (FlightResult r : results) {
+			causes.merge(r.cause(), 1, Integer::sum);
+		}
+		int n = ticks.length;
+		long totalTicks = Arrays.stream(ticks).sum();
+		double median = n % 2 == 1 ? ticks[n / 2] : (ticks[n / 2 - 1] + ticks[n / 2]) / 2.0;
+		return new FlightReport(n, (double) totalTicks / n, median, ticks[(int) ((n - 1) * 0.10)], ticks[0],
+				ticks[n - 1], results.stream().mapToDouble(FlightResult::score).average().orElse(0), causes,
+				totalTicks / (wallNanos / 1e9), wallNanos / 1_000_000);
+	}
+}
@@ -0,0 +1,46 @@
+package ie.atu.sw;
+
+import ie.atu.sw.autopilot.InferenceMode;
+import ie.atu.sw.autopilot.NeuralNetworkAutopilot;
+import ie.atu.sw.autopilot.NeuroevolutionTrainer;
+
+/**
+ * Evolves an autopilot against headless flight score and saves the fittest
+ * network.
+ * <p>
+ * Usage: {@code EvolutionRunner [generations] [population] [output.eg]}, with the
+ * cave size taken from {@link GridConfig#fromProperties()}.
+ */
+public class EvolutionRunner {
+	private static final int FITNESS_FLIGHTS = 10;
+	private static final int MAX_TICKS = 3000;
+	private static final long FITNESS_SEED = 2_000_000L;
+
+	public static void main(String[] args) throws Exception {
+		int generations = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+		int population = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+		String output = args.length > 2 ? args[2] : "autopilot.eg";
+
+		GridConfig grid = GridConfig.fromProperties();
+		int inputSize = grid.inputSize();
+		FlightSimulator simulator = new FlightSimulator(grid, MAX_TICKS);
+
+		// Every individual flies the same seeded caves with decisions seeded per flight, so a genome always
+		// gets the same fitness and scores are comparable within and across generations.
+		NeuroevolutionTrainer trainer = new NeuroevolutionTrainer(
+				() -> new NeuralNetworkAutopilot(inputSize, InferenceMode.DOUBLE),
+				autopilot -> {
+					double total = 0;
+					for (int i = 0; i < FITNESS_FLIGHTS; i++) {
+						total += simulator.fly(autopilot, FITNESS_SEED + i).score();
+					}
+					return total / FITNESS_FLIGHTS;
+				},
+				population, Math.max(1, population / 10), 0.05, 0.3, 7L);
+
+		NeuralNetworkAutopilot best = new NeuralNetworkAutopilot(inputSize, InferenceMode.DOUBLE);
+		best.setWeights(trainer.evolve(generations));
+		best.save(output);
+		System.out.println("Saved fittest autopilot to " + output);
+	}
+}
@@ -0,0 +1,12 @@
+package ie.atu.sw;
+
+/**
+ * The outcome of one headless flight.
+ *
+ * @param seed  the seed the cave was generated from
+ * @param ticks the number of timer ticks survived
+ * @param score the flight score, as {@link FlightSimulator#flightScore(long)}
+ * @param cause how the flight ended
+ */
+public record FlightResult(long seed, long ticks, double score, CrashCause cause) {
+}
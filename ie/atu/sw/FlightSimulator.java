@@ -0,0 +1,129 @@
+package ie.atu.sw;
+
+import java.util.Random;
+
+import ie.atu.sw.autopilot.ColumnStreamBuffer;
+import ie.atu.sw.autopilot.IAutopilotController;
+import ie.atu.sw.autopilot.TrainingDataBuffer;
+
+/**
+ * Flies an autopilot through a seeded {@link CaveModel} without a window or
+ * timer, following the same tick order as {@link GameView}: scroll the cave,
+ * ask the autopilot for a move, record a sample every third tick, then check
+ * for a crash.
+ * <p>
+ * A simulator holds no per-flight state, so one instance can be shared by
+ * many threads as long as each flight gets its own autopilot. Each flight
+ * starts with {@link IAutopilotController#startFlight}, so a flight depends
+ * only on the autopilot's weights and the seed, not on earlier flights.
+ */
+public class FlightSimulator {
+	public static final double TIME_WEIGHT = 10.0; // Reward per tick of flight time
+	public static final int SAMPLE_INTERVAL = 3;   // Ticks between recorded training samples, as in GameView
+
+	private final GridConfig grid;
+	private final int maxTicks;
+	private final int sampleInterval;
+
+	/**
+	 * @param maxTicks flights that survive this long are stopped and scored as is
+	 */
+	public FlightSimulator(GridConfig grid, int maxTicks) {
+		this(grid, maxTicks, SAMPLE_INTERVAL);
+	}
+
+	/**
+	 * @param maxTicks       flights that survive this long are stopped and scored as is
+	 * @param sampleInterval ticks between recorded samples; 1 records every tick
+	 */
+	public FlightSimulator(GridConfig grid, int maxTicks, int sampleInterval) {
+		this.grid = grid;
+		this.maxTicks = maxTicks;
+		this.sampleInterval = sampleInterval;
+	}
+
+	public GridConfig getGrid() {
+		return grid;
+	}
+
+	/**
+	 * Flies one flight through the cave generated from the seed.
+	 */
+	public FlightResult fly(IAutopilotController pilot, long seed) {
+		return fly(pilot, seed, null, null);
+	}
+
+	/**
+	 * Flies one flight through the cave generated from the seed.
+	 *
+	 * @param recorder receives a full feature vector every sample interval, or null
+	 */
+	public FlightResult fly(IAutopilotController pilot, long seed, TrainingDataBuffer recorder) {
+		return fly(pilot, seed, recorder, null);
+	}
+
+	/**
+	 * Flies one flight through the cave generated from the seed, recording into
+	 * a column stream: every column that scrolls into the horizon is appended
+	 * once, and each sample stores only its scalar features and label.
+	 */
+	public FlightResult fly(IAutopilotController pilot, long seed, ColumnStreamBuffer recorder) {
+		return fly(pilot, seed, null, recorder);
+	}
+
+	private FlightResult fly(IAutopilotController pilot, long seed, TrainingDataBuffer recorder,
+			ColumnStreamBuffer stream) {
+		CaveModel model = new CaveModel(grid, new Random(seed));
+		pilot.startFlight(seed);
+		long time = 0;
+		boolean crashed = false;
+
+		if (stream != null) {
+			for (int x = grid.playerColumn() + 1; x < grid.width(); x++) {
+				stream.appendColumn(model.column(x));
+			}
+		}
+
+		while (!crashed && time < maxTicks) {
+			time++;
+			byte[] newColumn = model.updateCave();
+			if (stream != null) {
+				stream.appendColumn(newColumn);
+			}
+			model.move(pilot.getMovement(model.sampleHorizon(false, false)));
+			crashed = model.isOutOfBounds() || model.isCollision();
+
+			if (time % sampleInterval == 0) {
+				if (recorder != null) {
+					recorder.addSample(model.sampleHorizon(model.isOutOfBounds(), false),
+							TrainingDataBuffer.toOneHot(model.getLastMovement()));
+				}
+				if (stream != null) {
+					stream.addSample(model.sampleScalars(model.isOutOfBounds(), false), model.getLastMovement());
+				}
+			}
+		}
+		return new FlightResult(seed, time, flightScore(time), crashCause(model, crashed));
+	}
+
+	private static CrashCause crashCause(CaveModel model, boolean crashed) {
+		if (!crashed) {
+			return CrashCause.SURVIVED;
+		} else if (model.getPlayerRow() < 0) {
+			return CrashCause.CEILING;
+		} else if (model.getPlayerRow() >= model.getGrid().height()) {
+			return CrashCause.FLOOR;
+		}
+		return CrashCause.WALL;
+	}
+
+	/**
+	 * The score of a flight that lasted the given number of ticks.
+	 */
+	public static double flightScore(long ticks) {
+		if (ticks == 0) {
+			return 0;
+		}
+		return (ticks * TIME_WEIGHT);
+	}
+}
@@ -1,7 +1,5 @@
 package ie.atu.sw;
 
-import static java.lang.Math.max;
-import static java.lang.Math.min;
 import static java.util.concurrent.ThreadLocalRandom.current;
 
 import java.awt.Color;
@@ -9,14 +7,14 @@ import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import javax.swing.JPanel;
@@ -24,37 +22,24 @@ import javax.swing.Timer;
 
 import ie.atu.sw.autopilot.IAutopilotController;
 import ie.atu.sw.autopilot.NeuralNetworkAutopilot;
-import ie.atu.sw.autopilot.TrainingDataBuffer; // NEW
-import ie.atu.sw.autopilot.TrainingSample;
+import ie.atu.sw.autopilot.TrainingDataBuffer;
 
 public class GameView extends JPanel implements ActionListener {
 	private static final long serialVersionUID = 1L;
-	private static final int MODEL_WIDTH = 30;
-	private static final int MODEL_HEIGHT = 20;
-	private static final int SCALING_FACTOR = 30;
-
-	private static final int MIN_TOP = 2;
-	private static final int MIN_BOTTOM = 18;
-	private static final int PLAYER_COLUMN = 15;
+	private static final int SCALING_FACTOR = 30; // Cell size in pixels for grids that fit the panel bounds
+	private static final int MIN_SCALING_FACTOR = 4;
+	private static final int MAX_PANEL_WIDTH = 1800;
+	private static final int MAX_PANEL_HEIGHT = 1000;
 	private static final int TIMER_INTERVAL = 100;
 
-	private static final byte ONE_SET = 1;
-	private static final byte ZERO_SET = 0;
-
-	/*
-	 * The game grid is implemented as a linked list of MODEL_WIDTH columns, where
-	 * each column is represented by a byte array of size MODEL_HEIGHT.
-	 */
-	private final LinkedList<byte[]> model = new LinkedList<>();
-
-	// Variables for the cavern generator.
-	private int prevTop = MIN_TOP;
-	private int prevBot = MIN_BOTTOM;
+	// The cave grid, its generator and the plane's position.
+	private final GridConfig grid;
+	private final CaveModel model;
+	private final int cellSize; // SCALING_FACTOR, shrunk so that large grids still fit on screen
 
 	private Timer timer;
 	private long time;
 
-	private int playerRow = 11;
 	private final Dimension dim;
 
 	// Fonts for UI display.
@@ -78,31 +63,34 @@ public class GameView extends JPanel implements ActionListener {
 
 	// Flight data
 	private boolean terminalFlag = false;
-	private int lastMovement = 0; // -1 for up, 0 for straight, 1 for down
 	private double bestTime = 0;
 	private boolean goodFlag = false; // Indicates a "good" flight.
 	private double currentFlightTime = 0;
-	private static final double TIME_WEIGHT = 10.0; // Reward per second of flight time
-	private static final double GOOD_FLIGHT_THRESHOLD = 100.0;
+	public static final double GOOD_FLIGHT_THRESHOLD = 100.0;
 
 	public GameView(boolean autoMode) throws Exception {
+		this(autoMode, GridConfig.DEFAULT);
+	}
+
+	public GameView(boolean autoMode, GridConfig grid) throws Exception {
 		this.autoMode = autoMode;
+		this.grid = grid;
+		this.model = new CaveModel(grid, new Random());
 		setBackground(Color.LIGHT_GRAY);
 		setDoubleBuffered(true);
 
 		// Set panel size
-		dim = new Dimension(MODEL_WIDTH * SCALING_FACTOR, MODEL_HEIGHT * SCALING_FACTOR);
+		cellSize = Math.max(MIN_SCALING_FACTOR, Math.min(SCALING_FACTOR,
+				Math.min(MAX_PANEL_WIDTH / grid.width(), MAX_PANEL_HEIGHT / grid.height())));
+		dim = new Dimension(grid.width() * cellSize, grid.height() * cellSize);
 		setPreferredSize(dim);
 		setMinimumSize(dim);
 		setMaximumSize(dim);
 
-		initModel();
-
 		// Input size for the neural network:
-		// (columns ahead of player * MODEL_HEIGHT) + 4 extra features.
+		// (columns ahead of player * grid height) + 4 extra features.
 		if (this.autoMode) {
-			int horizonColumns = MODEL_WIDTH - (PLAYER_COLUMN + 1);
-			int inputSize = (horizonColumns * MODEL_HEIGHT) + 4;
+			int inputSize = grid.inputSize();
 			System.out.println("Neural Network Input Size: " + inputSize);
 			autopilot = new NeuralNetworkAutopilot(inputSize);
 		}
@@ -111,15 +99,6 @@ public class GameView extends JPanel implements ActionListener {
 		timer.start();
 	}
 
-	/**
-	 * Initializes the game grid with empty (zero) values.
-	 */
-	private void initModel() {
-		for (int i = 0; i < MODEL_WIDTH; i++) {
-			model.add(new byte[MODEL_HEIGHT]);
-		}
-	}
-
 	public void setSprite(Sprite s) {
 		this.sprite = s;
 	}
@@ -138,28 +117,27 @@ public class GameView extends JPanel implements ActionListener {
 		g2.fillRect(0, 0, dim.width, dim.height);
 
 		// Draw grid and sprites.
-		for (int x = 0; x < MODEL_WIDTH; x++) {
-			for (int y = 0; y < MODEL_HEIGHT; y++) {
-				int x1 = x * SCALING_FACTOR;
-				int y1 = y * SCALING_FACTOR;
+		int playerRow = model.getPlayerRow();
+		int playerColumn = grid.playerColumn();
+		for (int x = 0; x < grid.width(); x++) {
+			byte[] column = model.column(x);
+			for (int y = 0; y < grid.height(); y++) {
+				int x1 = x * cellSize;
+				int y1 = y * cellSize;
 
 				// Draw obstacles.
-				if (model.get(x)[y] != 0) {
+				if (column[y] != 0) {
 					// If the plane collides with an obstacle, end the game.
-					if (y == playerRow && x == PLAYER_COLUMN) {
+					if (y == playerRow && x == playerColumn) {
 						end();
 					}
 					g2.setColor(Color.BLACK);
-					g2.fillRect(x1, y1, SCALING_FACTOR, SCALING_FACTOR);
+					g2.fillRect(x1, y1, cellSize, cellSize);
 				}
 
 				// Draw the player.
-				if (x == PLAYER_COLUMN && y == playerRow) {
-					if (timer.isRunning()) {
-						g2.drawImage(sprite.getNext(), x1, y1, null);
-					} else {
-						g2.drawImage(dyingSprite.getNext(), x1, y1, null);
-					}
+				if (x == playerColumn && y == playerRow) {
+					drawScaled(g2, timer.isRunning() ? sprite.getNext() : dyingSprite.getNext(), x1, y1);
 				}
 			}
 		}
@@ -167,33 +145,41 @@ public class GameView extends JPanel implements ActionListener {
 		// Draw UI: flight time display.
 		g2.setFont(timeFont);
 		g2.setColor(Color.RED);
-		g2.fillRect(1 * SCALING_FACTOR, 15 * SCALING_FACTOR, 400, 3 * SCALING_FACTOR);
+		// The box is sized for its font, so it keeps its pixel size and sits 150px above the bottom edge.
+		int boxTop = dim.height - 5 * SCALING_FACTOR;
+		g2.fillRect(1 * SCALING_FACTOR, boxTop, 400, 3 * SCALING_FACTOR);
 		g2.setColor(Color.WHITE);
 		int flightTimeSeconds = (int) (time * (TIMER_INTERVAL / 1000.0));
 		g2.drawString("Time: " + flightTimeSeconds + "s", 
 				1 * SCALING_FACTOR + 10, 
-				(15 * SCALING_FACTOR) + (2 * SCALING_FACTOR));
+				boxTop + (2 * SCALING_FACTOR));
 
 		// Draw Game Over screen.
 		if (!timer.isRunning() && gameOver) {
 			g2.setFont(gameOverFont);
 			g2.setColor(Color.RED);
 			g2.drawString("Game Over!", 
-					(MODEL_WIDTH / 5) * SCALING_FACTOR, 
-					(MODEL_HEIGHT / 2) * SCALING_FACTOR);
+					(grid.width() / 5) * cellSize, 
+					(grid.height() / 2) * cellSize);
 		}
 	}
 
+	// Sprites are drawn at their native size on the default scale and shrink with the cells.
+	private void drawScaled(Graphics2D g2, BufferedImage image, int x, int y) {
+		int width = image.getWidth() * cellSize / SCALING_FACTOR;
+		int height = image.getHeight() * cellSize / SCALING_FACTOR;
+		g2.drawImage(image, x, y, width, height, null);
+	}
+
 	/**
 	 * Moves the plane up or down.
 	 * @param step -1 for up, 0 for straight, 1 for down.
 	 */
 	public void move(int step) {
-		playerRow += step;
-		lastMovement = step;
+		model.move(step);
 
 		// Check bounds.
-		if (playerRow < 0 || playerRow >= MODEL_HEIGHT) {
+		if (model.isOutOfBounds()) {
 			end();
 		}
 	}
@@ -203,7 +189,8 @@ public class GameView extends JPanel implements ActionListener {
 	 */
 	private void autoMove() {
 		if (autopilot != null) {
-			double[] state = sample();
+			// Feed the network the same horizon features it is trained on.
+			double[] state = sampleHorizonWithMovementAndPosition();
 			move(autopilot.getMovement(state));
 		} else {
 			move(current().nextInt(-1, 2));
@@ -215,7 +202,7 @@ public class GameView extends JPanel implements ActionListener {
 		time++;
 		repaint();
 
-		updateCave();
+		model.updateCave();
 		if (autoMode) {
 			autoMove();
 		}
@@ -225,7 +212,8 @@ public class GameView extends JPanel implements ActionListener {
 			double[] sample = sampleHorizonWithMovementAndPosition();
 			
 			//Convert lastMovement to one-hot and store in currentFlightBuffer.
-			double[] labelOneHot = toOneHot(lastMovement);
+			int lastMovement = model.getLastMovement();
+			double[] labelOneHot = TrainingDataBuffer.toOneHot(lastMovement);
 			currentFlightBuffer.addSample(sample, labelOneHot);
 			
 			// Optionally still write to CSV 
@@ -235,24 +223,6 @@ public class GameView extends JPanel implements ActionListener {
 		}
 	}
 
-	/**
-	 * Convert a movement (–1, 0, 1) to a one-hot vector of length 3.
-	 * up   (–1) → [1, 0, 0]
-	 * stay ( 0) → [0, 1, 0]
-	 * down ( 1) → [0, 0, 1]
-	 */
-	private double[] toOneHot(int movement) {
-		double[] labelOneHot = new double[3];
-		if (movement == -1) {
-			labelOneHot[0] = 1.0;
-		} else if (movement == 0) {
-			labelOneHot[1] = 1.0;
-		} else {
-			labelOneHot[2] = 1.0;
-		}
-		return labelOneHot;
-	}
-
 	/**
 	 * Writes a single row to a CSV file. Each row contains the feature vector,
 	 * the last movement, etc.
@@ -274,38 +244,12 @@ public class GameView extends JPanel implements ActionListener {
 		}
 	}
 
-	/**
-	 * Updates the cave by moving the oldest column to the tail and generating new obstacles.
-	 */
-	private void updateCave() {
-		byte[] nextColumn = model.pollFirst();
-		model.addLast(nextColumn);
-		Arrays.fill(nextColumn, ONE_SET);
-
-		// Determine new cavern boundaries.
-		int minSpace = 4; // Minimum gap size.
-		prevTop += current().nextBoolean() ? 1 : -1;
-		prevBot += current().nextBoolean() ? 1 : -1;
-		prevTop = max(MIN_TOP, min(prevTop, prevBot - minSpace));
-		prevBot = min(MIN_BOTTOM, max(prevBot, prevTop + minSpace));
-
-		// Carve out the cavern.
-		Arrays.fill(nextColumn, prevTop, prevBot, ZERO_SET);
-	}
-
 	/**
 	 * Samples the entire game grid (flattened) for use by the neural network.
 	 * @return A double array representation of the grid.
 	 */
 	public double[] sample() {
-		double[] vector = new double[MODEL_WIDTH * MODEL_HEIGHT];
-		int index = 0;
-		for (byte[] column : model) {
-			for (byte cell : column) {
-				vector[index++] = cell;
-			}
-		}
-		return vector;
+		return model.sample();
 	}
 
 	/**
@@ -317,27 +261,7 @@ public class GameView extends JPanel implements ActionListener {
 	 *  - goodFlag
 	 */
 	public double[] sampleHorizonWithMovementAndPosition() {
-		int horizonStart = PLAYER_COLUMN + 1;
-		int horizonColumns = MODEL_WIDTH - horizonStart;
-		int featureVectorSize = (horizonColumns * MODEL_HEIGHT) + 4;
-		double[] features = new double[featureVectorSize];
-		int index = 0;
-
-		// Append horizon columns.
-		for (int x = horizonStart; x < MODEL_WIDTH; x++) {
-			byte[] column = model.get(x);
-			for (int y = 0; y < MODEL_HEIGHT; y++) {
-				features[index++] = column[y];
-			}
-		}
-
-		// Append extra features.
-		features[index++] = lastMovement;
-		features[index++] = (double) playerRow / MODEL_HEIGHT;
-		features[index++] = terminalFlag ? 1.0 : 0.0;
-		features[index]   = goodFlag     ? 1.0 : 0.0;
-
-		return features;
+		return model.sampleHorizon(terminalFlag, goodFlag);
 	}
 
 	/**
@@ -376,15 +300,10 @@ public class GameView extends JPanel implements ActionListener {
 	}
 
 	/**
-	 * Merges the samples from currentFlightBuffer into trainingDataBuffer, then clears currentFlightBuffer.
+	 * Moves the samples from currentFlightBuffer into trainingDataBuffer, leaving currentFlightBuffer empty.
 	 */
 	private void mergeCurrentFlightIntoMain() {
-		double[][] flightFeatures = currentFlightBuffer.getFeaturesArray();
-		double[][] flightLabels = currentFlightBuffer.getLabelArray();
-		for (int i = 0; i < flightFeatures.length; i++) {
-			trainingDataBuffer.addSample(flightFeatures[i], flightLabels[i]);
-		}
-		currentFlightBuffer.clear();
+		currentFlightBuffer.transferTo(trainingDataBuffer);
 	}
 
 	/**
@@ -392,13 +311,12 @@ public class GameView extends JPanel implements ActionListener {
 	 */
 	public void reset() {
 		if (autoMode && trainingDataBuffer.size() > 0) {
-			trainingDataBuffer.saveToCSV("training_data.csv", (int)currentFlightBuffer.getFeaturesArray().length);
+			trainingDataBuffer.saveToCSV("training_data.csv", grid.inputSize());
 			trainAutopilotUsingBuffer();
 		}
 
 		terminalFlag = false;
-		model.forEach(column -> Arrays.fill(column, ZERO_SET));
-		playerRow = 11;
+		model.reset();
 		time = 0;
 		gameOver = false;
 		timer.restart();
@@ -408,44 +326,14 @@ public class GameView extends JPanel implements ActionListener {
 	 * Uses the stored training samples in trainingDataBuffer to train the autopilot.
 	 */
 	private void trainAutopilotUsingBuffer() {
-		// The autopilot’s trainNetwork(...) method currently expects a List<TrainingSample>.
-		// quickly build up a List<TrainingSample> on-the-fly.
-
-		// Convert the buffer to arrays:
-		double[][] features = trainingDataBuffer.getFeaturesArray();
-		double[][] labels   = trainingDataBuffer.getLabelArray();
-
-		// Convert each row of 'labels' from one-hot to (–1, 0, or 1), then create TrainingSample.
-		java.util.List<TrainingSample> samples = new java.util.ArrayList<>();
-		for (int i = 0; i < features.length; i++) {
-			int m = labelIndexToMovement(labels[i]);
-			samples.add(new TrainingSample(features[i], m));
-		}
-
-		// Now train:
-		autopilot.trainNetwork(samples, 5000);
+		// The neural autopilot trains on the buffer in place; others convert it to samples.
+		autopilot.trainNetwork(trainingDataBuffer, 5000);
 
 		// Clear the buffer after a successful train, if desired:
 		trainingDataBuffer.clear();
 	}
 
-	/**
-	 * Helper that maps a one-hot vector back to an integer movement.
-	 * [1,0,0] → -1; [0,1,0] → 0; [0,0,1] → 1
-	 */
-	private int labelIndexToMovement(double[] oneHot) {
-		// if oneHot[0] = 1 → -1
-		// if oneHot[1] = 1 → 0
-		// if oneHot[2] = 1 → 1
-		if (oneHot[0] > 0.5) return -1;
-		if (oneHot[1] > 0.5) return 0;
-		return 1;
-	}
-
 	private double computeFlightScore() {
-		if (time == 0) {
-			return 0;
-		}
-		return (time * TIME_WEIGHT);
+		return FlightSimulator.flightScore(time);
 	}
 }
@@ -10,7 +10,11 @@ public class GameWindow implements KeyListener{
 	private GameView view;
 	
 	public GameWindow() throws Exception {
-		view = new GameView(true); //Use true to get the plane to fly in autopilot mode...
+		this(GridConfig.DEFAULT);
+	}
+
+	public GameWindow(GridConfig grid) throws Exception {
+		view = new GameView(true, grid); //Use true to get the plane to fly in autopilot mode...
 		init();
 		loadSprites();
 	}
@@ -25,9 +29,8 @@ public class GameWindow implements KeyListener{
         f.addKeyListener(this);
         f.getContentPane().setLayout(new FlowLayout());
         f.add(view);
-        f.setSize(1000,1000);
         f.setLocation(100,100);
-        f.pack();
+        f.pack(); //Size the frame around the view, whatever the grid size
         f.setVisible(true);
 	}
 	
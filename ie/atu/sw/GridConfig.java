@@ -0,0 +1,111 @@
+package ie.atu.sw;
+
+import ie.atu.sw.autopilot.NeuralNetworkAutopilot;
+
+/**
+ * The dimensions of the cave grid and the player's position in it. Every
+ * size that depends on the grid (the horizon, the network input, the
+ * rendered panel, the persisted feature count) is derived from here.
+ * <p>
+ * The command-line tools read the grid from the {@code autopilot.grid} system
+ * property, written as {@code WIDTHxHEIGHT} or {@code WIDTHxHEIGHT:PLAYER_COLUMN},
+ * for example {@code -Dautopilot.grid=200x100:15}.
+ *
+ * @param width        the number of columns
+ * @param height       the number of rows
+ * @param playerColumn the column the plane flies in; every column to its right is horizon
+ */
+public record GridConfig(int width, int height, int playerColumn) {
+	public static final GridConfig DEFAULT = new GridConfig(30, 20, 15);
+	public static final String PROPERTY = "autopilot.grid";
+
+	public static final int SCALAR_FEATURES = NeuralNetworkAutopilot.SCALAR_FEATURES; // Extra features after the horizon cells.
+	private static final int WALL_MARGIN = 2;     // Rows always kept solid at the top and bottom.
+	private static final int MIN_SPACE = 4;       // Minimum gap size.
+
+	public GridConfig {
+		if (height < 2 * WALL_MARGIN + MIN_SPACE) {
+			throw new IllegalArgumentException("Grid height must be at least " + (2 * WALL_MARGIN + MIN_SPACE));
+		}
+		if (playerColumn < 0 || playerColumn >= width - 1) {
+			throw new IllegalArgumentException("Player column " + playerColumn + " leaves no horizon in width " + width);
+		}
+	}
+
+	/**
+	 * Parses {@code WIDTHxHEIGHT} or {@code WIDTHxHEIGHT:PLAYER_COLUMN}. Without a
+	 * player column the plane flies in the middle, as in the default grid.
+	 */
+	public static GridConfig parse(String spec) {
+		try {
+			String[] parts = spec.trim().split(":");
+			String[] size = parts[0].split("x");
+			int width = Integer.parseInt(size[0]);
+			int height = Integer.parseInt(size[1]);
+			int playerColumn = parts.length > 1 ? Integer.parseInt(parts[1]) : width / 2;
+			return new GridConfig(width, height, playerColumn);
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Invalid grid '" + spec + "', expected WIDTHxHEIGHT[:PLAYER_COLUMN]", e);
+		}
+	}
+
+	/**
+	 * The grid named by the {@code autopilot.grid} system property, or {@link #DEFAULT}.
+	 */
+	public static GridConfig fromProperties() {
+		String spec = System.getProperty(PROPERTY);
+		return spec == null ? DEFAULT : parse(spec);
+	}
+
+	/**
+	 * The number of columns ahead of the player.
+	 */
+	public int horizonColumns() {
+		return width - (playerColumn + 1);
+	}
+
+	/**
+	 * The number of features in a horizon sample:
+	 * (columns ahead of player * height) + {@link #SCALAR_FEATURES} extra features.
+	 */
+	public int inputSize() {
+		return (horizonColumns() * height) + SCALAR_FEATURES;
+	}
+
+	/**
+	 * Checks that a model or file built for {@code actual} input features fits this grid.
+	 *
+	 * @param source names the model or file in the error, e.g. its path
+	 * @throws IllegalArgumentException if the sizes differ
+	 */
+	public void requireInputSize(String source, int actual) {
+		if (actual != inputSize()) {
+			throw new IllegalArgumentException(source + " expects " + actual + " features but grid " + this
+					+ " produces " + inputSize());
+		}
+	}
+
+	public int minTop() {
+		return WALL_MARGIN;
+	}
+
+	public int minBottom() {
+		return height - WALL_MARGIN;
+	}
+
+	public int minSpace() {
+		return MIN_SPACE;
+	}
+
+	/**
+	 * The row the plane starts in; row 11 on the default grid.
+	 */
+	public int startRow() {
+		return height / 2 + 1;
+	}
+
+	@Override
+	public String toString() {
+		return width + "x" + height + ":" + playerColumn;
+	}
+}
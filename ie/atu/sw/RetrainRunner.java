@@ -0,0 +1,59 @@
+package ie.atu.sw;
+
+import java.util.List;
+
+import ie.atu.sw.autopilot.ColumnStreamBuffer;
+import ie.atu.sw.autopilot.InferenceMode;
+import ie.atu.sw.autopilot.MiniBatchTrainer;
+import ie.atu.sw.autopilot.NeuralNetworkAutopilot;
+import ie.atu.sw.autopilot.TrainingDataLoader;
+import ie.atu.sw.autopilot.TrainingSample;
+
+/**
+ * Trains a fresh autopilot from a recorded training CSV, such as
+ * {@code training_data.csv}, or from a column-stream file written by
+ * {@link ShardMerger}, and saves it. A column stream is trained on in place,
+ * building each feature vector only when a batch needs it.
+ * <p>
+ * Usage: {@code RetrainRunner <data.csv|data.cols> [epochs] [output.eg] [batchSize] [seed]}, with
+ * the cave size taken from {@link GridConfig#fromProperties()}. A batch size above
+ * 0 trains with {@link MiniBatchTrainer} instead of full-batch RPROP; it then needs
+ * tens of epochs rather than thousands. A seed fixes the mini-batch shuffles so
+ * two runs on the same data can be compared.
+ */
+public class RetrainRunner {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.out.println("Usage: RetrainRunner <data.csv|data.cols> [epochs] [output.eg] [batchSize] [seed]");
+			return;
+		}
+		int epochs = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+		String output = args.length > 2 ? args[2] : "autopilot.eg";
+		int batchSize = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+		int inputSize = GridConfig.fromProperties().inputSize();
+
+		NeuralNetworkAutopilot autopilot = new NeuralNetworkAutopilot(inputSize, InferenceMode.DOUBLE);
+		autopilot.setTrainingOptions(0, batchSize > 0 ? 1 : 100);
+		if (args.length > 4) {
+			autopilot.setMiniBatchTraining(batchSize, MiniBatchTrainer.DEFAULT_LEARNING_RATE, Long.parseLong(args[4]));
+		} else {
+			autopilot.setMiniBatchTraining(batchSize, MiniBatchTrainer.DEFAULT_LEARNING_RATE);
+		}
+
+		TrainingDataLoader loader = new TrainingDataLoader();
+		long start = System.currentTimeMillis();
+		if (TrainingDataLoader.isColumnStream(args[0])) {
+			ColumnStreamBuffer stream = loader.loadColumnStream(args[0], inputSize);
+			System.out.println("Loaded " + stream.size() + " samples (" + stream.storageBytes() + " bytes) in "
+					+ (System.currentTimeMillis() - start) + " ms");
+			autopilot.trainNetwork(stream, epochs);
+		} else {
+			List<TrainingSample> samples = loader.loadSamples(args[0], inputSize);
+			System.out.println("Loaded " + samples.size() + " samples in " + (System.currentTimeMillis() - start) + " ms");
+			autopilot.trainNetwork(samples, epochs);
+		}
+		autopilot.save(output);
+		System.out.println("Saved autopilot to " + output);
+	}
+}
@@ -5,13 +5,18 @@ import static java.lang.System.*;
 
 public class Runner {
 	public static void main(String[] args) throws Exception {
+		/*
+		 * Optional grid size, e.g. "200x100" or "200x100:15" (WIDTHxHEIGHT[:PLAYER_COLUMN]).
+		 * Falls back to the autopilot.grid system property, then the default 30x20 grid.
+		 */
+		GridConfig grid = args.length > 0 ? GridConfig.parse(args[0]) : GridConfig.fromProperties();
 		
 		/*
 		 * Always run a GUI in a separate thread from the main thread.
 		 */
 		SwingUtilities.invokeAndWait(() -> { //Sounds like the Command Pattern at work!
 			try {
-				new GameWindow();
+				new GameWindow(grid);
 			} catch (Exception e) {
 				out.println("[ERROR] Yikes...problem starting up " + e.getMessage());
 			}
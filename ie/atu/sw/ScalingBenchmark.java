@@ -0,0 +1,80 @@
+package ie.atu.sw;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ie.atu.sw.autopilot.ColumnStreamBuffer;
+import ie.atu.sw.autopilot.InferenceMode;
+import ie.atu.sw.autopilot.NeuralNetworkAutopilot;
+import ie.atu.sw.autopilot.RandomAutopilot;
+import ie.atu.sw.autopilot.TrainingDataBuffer;
+
+/**
+ * Measures how the cost of the game and the autopilot grows with the grid.
+ * <p>
+ * For each grid it reports the input size, the network's weight count, the
+ * time per simulated tick (cave scroll, feature extraction and one forward
+ * pass), the storage per recorded sample both as dense feature vectors and in
+ * a {@link ColumnStreamBuffer}, and the time per RPROP epoch on a fixed number
+ * of samples.
+ * <p>
+ * Usage: {@code ScalingBenchmark [WIDTHxHEIGHT[:PLAYER_COLUMN]]...}
+ */
+public class ScalingBenchmark {
+	private static final String[] DEFAULT_GRIDS = { "30x20:15", "60x40:30", "100x50:50", "200x100:100", "200x100:15" };
+	private static final int TICKS = 5_000;
+	private static final int TRAINING_SAMPLES = 500;
+	private static final int TRAINING_EPOCHS = 10;
+	private static final int MAX_TICKS = 3000;
+
+	public static void main(String[] args) {
+		String[] specs = args.length > 0 ? args : DEFAULT_GRIDS;
+		List<GridConfig> grids = new ArrayList<>();
+		for (String spec : specs) {
+			grids.add(GridConfig.parse(spec));
+		}
+
+		System.out.printf("%-12s %8s %8s %10s %12s %14s %15s %12s%n", "Grid", "Inputs", "Hidden", "Weights",
+				"Tick (us)", "Dense B/smpl", "Stream B/smpl", "Epoch (ms)");
+		for (GridConfig grid : grids) {
+			run(grid);
+		}
+	}
+
+	private static void run(GridConfig grid) {
+		int inputSize = grid.inputSize();
+		NeuralNetworkAutopilot autopilot = new NeuralNetworkAutopilot(inputSize, InferenceMode.DOUBLE);
+		autopilot.setTrainingOptions(0, 0);
+		FlightSimulator simulator = new FlightSimulator(grid, MAX_TICKS);
+
+		// Warm up, then time whole flights until enough ticks have been flown.
+		for (long seed = 0; seed < 20; seed++) {
+			simulator.fly(autopilot, seed);
+		}
+		long ticks = 0;
+		long start = System.nanoTime();
+		for (long seed = 0; ticks < TICKS; seed++) {
+			ticks += simulator.fly(autopilot, seed).ticks();
+		}
+		double tickMicros = (System.nanoTime() - start) / 1000.0 / ticks;
+
+		// Record the same flights densely and as a column stream.
+		TrainingDataBuffer dense = new TrainingDataBuffer();
+		ColumnStreamBuffer stream = new ColumnStreamBuffer(grid.height(), grid.horizonColumns(),
+				GridConfig.SCALAR_FEATURES);
+		for (long seed = 0; dense.size() < TRAINING_SAMPLES; seed++) {
+			simulator.fly(new RandomAutopilot(seed), seed, dense);
+			simulator.fly(new RandomAutopilot(seed), seed, stream);
+		}
+		long denseBytesPerSample = 8L * (inputSize + 3);
+		double streamBytesPerSample = (double) stream.storageBytes() / stream.size();
+
+		start = System.nanoTime();
+		autopilot.trainNetwork(dense, TRAINING_EPOCHS);
+		double epochMillis = (System.nanoTime() - start) / 1e6 / TRAINING_EPOCHS;
+
+		System.out.printf("%-12s %8d %8d %10d %12.2f %14d %15.1f %12.2f%n", grid, inputSize,
+				NeuralNetworkAutopilot.defaultHiddenSize(inputSize), autopilot.getWeights().length, tickMicros,
+				denseBytesPerSample, streamBytesPerSample, epochMillis);
+	}
+}
@@ -0,0 +1,77 @@
+package ie.atu.sw;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import ie.atu.sw.autopilot.ColumnStreamBuffer;
+
+/**
+ * Generates training data with several worker JVMs on one machine and merges
+ * their shards into a single training file.
+ * <p>
+ * Each {@link ShardWorker} runs in its own process with its own heap and
+ * garbage collector, writing to its own shard file, so throughput grows with
+ * the number of workers instead of being capped by one JVM. When every worker
+ * has finished, {@link ShardMerger} combines the shards into one column-stream
+ * file and writes a manifest.
+ * <p>
+ * Usage: {@code ShardLauncher <workers> <flights> <outputDir> [baseSeed] [sampleInterval] [model.eg]},
+ * with the cave size taken from {@link GridConfig#fromProperties()} and passed on to the workers.
+ */
+public class ShardLauncher {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 3) {
+			System.out.println("Usage: ShardLauncher <workers> <flights> <outputDir> [baseSeed] [sampleInterval] [model.eg]");
+			return;
+		}
+		int workers = Integer.parseInt(args[0]);
+		long flights = Long.parseLong(args[1]);
+		File outputDir = new File(args[2]);
+		String baseSeed = args.length > 3 ? args[3] : "0";
+		String sampleInterval = args.length > 4 ? args[4] : String.valueOf(FlightSimulator.SAMPLE_INTERVAL);
+		String modelFile = args.length > 5 ? args[5] : null;
+		GridConfig grid = GridConfig.fromProperties();
+		if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+			throw new IllegalArgumentException("Cannot create " + outputDir);
+		}
+
+		// Launch the workers with the same JVM and classpath as this process.
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		String classpath = System.getProperty("java.class.path");
+		List<Process> processes = new ArrayList<>();
+		List<String> shards = new ArrayList<>();
+		long start = System.currentTimeMillis();
+		try {
+			for (int i = 0; i < workers; i++) {
+				String shard = new File(outputDir, "shard-" + i + ColumnStreamBuffer.FILE_EXTENSION).getPath();
+				List<String> command = new ArrayList<>(List.of(java, "-cp", classpath,
+						"-D" + GridConfig.PROPERTY + "=" + grid, ShardWorker.class.getName(),
+						String.valueOf(i), String.valueOf(workers), String.valueOf(flights), shard, baseSeed, sampleInterval));
+				if (modelFile != null) {
+					command.add(modelFile);
+				}
+				processes.add(new ProcessBuilder(command).inheritIO().start());
+				shards.add(shard);
+			}
+
+			for (int i = 0; i < processes.size(); i++) {
+				int exit = processes.get(i).waitFor();
+				if (exit != 0) {
+					throw new IllegalStateException("Worker " + i + " exited with status " + exit);
+				}
+			}
+		} finally {
+			// After a failure, stop the remaining workers rather than leave them writing partial shards.
+			for (Process process : processes) {
+				if (process.isAlive()) {
+					process.destroy();
+				}
+			}
+		}
+		System.out.println("Generated " + workers + " shards in " + (System.currentTimeMillis() - start) + " ms");
+
+		ShardMerger.merge(shards, new File(outputDir, "training_data" + ColumnStreamBuffer.FILE_EXTENSION).getPath(), grid);
+	}
+}
@@ -0,0 +1,171 @@
+package ie.atu.sw;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import ie.atu.sw.autopilot.ColumnStreamBuffer;
+
+/**
+ * Combines shard files written by {@link ShardWorker} into one column-stream
+ * training file, which {@link ie.atu.sw.autopilot.TrainingDataLoader} reads.
+ * <p>
+ * Each shard is already ordered by seed, so a k-way merge on the flight seeds
+ * streams every shard once with only one pending flight per shard in memory.
+ * A flight cut short at the end of a shard (such as one being written by a
+ * killed worker) is skipped. A manifest describing the inputs and output is
+ * written next to the merged file.
+ * <p>
+ * Usage: {@code ShardMerger <output.cols> <shard.cols>...}, with the cave size
+ * taken from {@link GridConfig#fromProperties()}.
+ */
+public class ShardMerger {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: ShardMerger <output.cols> <shard.cols>...");
+			return;
+		}
+		List<String> shards = new ArrayList<>(List.of(args).subList(1, args.length));
+		merge(shards, args[0], GridConfig.fromProperties());
+	}
+
+	// One open shard and its next unread flight.
+	private static final class Cursor {
+		final String file;
+		final int index;
+		final DataInputStream in;
+		final ColumnStreamBuffer flight;
+		long seed;
+		long flights;
+		long samples;
+		long skipped;
+		long firstSeed = -1;
+		long lastSeed = -1;
+
+		Cursor(String file, int index) throws IOException {
+			this.file = file;
+			this.index = index;
+			this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				this.flight = ColumnStreamBuffer.readHeader(in);
+			} catch (IOException e) {
+				in.close();
+				throw new IOException("Not a shard file: " + file, e);
+			}
+		}
+
+		// Reads the next complete flight; returns false at end of file.
+		boolean advance() throws IOException {
+			flight.clear();
+			try {
+				seed = flight.readFlight(in);
+			} catch (EOFException e) {
+				skipped++;
+				seed = ColumnStreamBuffer.NO_FLIGHT;
+			}
+			if (seed == ColumnStreamBuffer.NO_FLIGHT) {
+				in.close();
+				return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Merges the shards into {@code output} and writes {@code output + ".manifest"}.
+	 *
+	 * @param grid the grid the shards were generated on; their layout must match it
+	 * @return the number of samples written.
+	 */
+	public static long merge(List<String> shards, String output, GridConfig grid) throws IOException {
+		if (shards.isEmpty()) {
+			throw new IOException("No shards to merge");
+		}
+		List<Cursor> cursors = new ArrayList<>();
+		try {
+			for (int i = 0; i < shards.size(); i++) {
+				Cursor cursor = new Cursor(shards.get(i), i);
+				cursors.add(cursor);
+				if (cursor.flight.getColumnHeight() != grid.height()
+						|| cursor.flight.getFeatureCount() != grid.inputSize()) {
+					throw new IOException("Shard " + cursor.file + " has " + cursor.flight.getFeatureCount()
+							+ " features in columns of " + cursor.flight.getColumnHeight() + " but grid " + grid
+							+ " produces " + grid.inputSize() + " in columns of " + grid.height());
+				}
+			}
+		} catch (IOException e) {
+			for (Cursor cursor : cursors) {
+				cursor.in.close();
+			}
+			throw e;
+		}
+
+		PriorityQueue<Cursor> heap = new PriorityQueue<>(
+				Comparator.<Cursor>comparingLong(c -> c.seed).thenComparingInt(c -> c.index));
+		for (Cursor cursor : cursors) {
+			if (cursor.advance()) {
+				heap.add(cursor);
+			}
+		}
+
+		long samples = 0;
+		long flights = 0;
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(output)))) {
+			cursors.get(0).flight.writeHeader(out);
+			while (!heap.isEmpty()) {
+				Cursor cursor = heap.poll();
+				cursor.flight.writeFlight(out, cursor.seed);
+				flights++;
+				samples += cursor.flight.size();
+				cursor.flights++;
+				cursor.samples += cursor.flight.size();
+				if (cursor.firstSeed < 0) {
+					cursor.firstSeed = cursor.seed;
+				}
+				cursor.lastSeed = cursor.seed;
+				if (cursor.advance()) {
+					heap.add(cursor);
+				}
+			}
+		}
+
+		writeManifest(output, grid, samples, flights, cursors);
+		System.out.println("Merged " + cursors.size() + " shards into " + output + ": " + samples + " samples from "
+				+ flights + " flights, " + new File(output).length() + " bytes");
+		return samples;
+	}
+
+	private static void writeManifest(String output, GridConfig grid, long samples, long flights,
+			List<Cursor> cursors) throws IOException {
+		try (PrintWriter pw = new PrintWriter(new FileWriter(output + ".manifest"))) {
+			pw.println("output=" + output);
+			pw.println("format=column-stream");
+			pw.println("grid=" + grid);
+			pw.println("featureCount=" + grid.inputSize());
+			pw.println("samples=" + samples);
+			pw.println("flights=" + flights);
+			pw.println("bytes=" + new File(output).length());
+			pw.println("shards=" + cursors.size());
+			for (Cursor c : cursors) {
+				pw.println("shard." + c.index + ".file=" + c.file);
+				pw.println("shard." + c.index + ".flights=" + c.flights);
+				pw.println("shard." + c.index + ".samples=" + c.samples);
+				pw.println("shard." + c.index + ".skippedFlights=" + c.skipped);
+				pw.println("shard." + c.index + ".seeds=" + c.firstSeed + ".." + c.lastSeed);
+			}
+		}
+	}
+}
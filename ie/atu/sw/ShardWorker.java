@@ -0,0 +1,77 @@
+package ie.atu.sw;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+
+import ie.atu.sw.autopilot.ColumnStreamBuffer;
+import ie.atu.sw.autopilot.IAutopilotController;
+import ie.atu.sw.autopilot.InferenceMode;
+import ie.atu.sw.autopilot.NeuralNetworkAutopilot;
+import ie.atu.sw.autopilot.RandomAutopilot;
+
+/**
+ * Generates training flights headlessly into one shard file. Run as its own
+ * JVM by {@link ShardLauncher}, one per shard.
+ * <p>
+ * Shard {@code i} of {@code k} flies the seeds {@code baseSeed + i},
+ * {@code baseSeed + i + k}, {@code baseSeed + i + 2k}, ... so shards never
+ * overlap and a merge ordered by seed gives the same file whatever {@code k}
+ * was. Only flights scoring above {@link GameView#GOOD_FLIGHT_THRESHOLD} are
+ * kept, and each flight is written as soon as it lands so heap use stays flat.
+ * <p>
+ * Flights are recorded into a {@link ColumnStreamBuffer} and written in its
+ * column-stream file format, one flight block per kept flight tagged with its
+ * seed. Each cave column is stored once rather than once per sample that sees
+ * it, so even dense recording (a sample every tick) stays compact on disk.
+ * <p>
+ * Usage: {@code ShardWorker <shardIndex> <shardCount> <flights> <output.cols> [baseSeed] [sampleInterval] [model.eg]},
+ * with the cave size taken from {@link GridConfig#fromProperties()}.
+ */
+public class ShardWorker {
+	private static final int MAX_TICKS = 3000;
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 4) {
+			System.out.println("Usage: ShardWorker <shardIndex> <shardCount> <flights> <output.cols> [baseSeed] [sampleInterval] [model.eg]");
+			return;
+		}
+		int shardIndex = Integer.parseInt(args[0]);
+		int shardCount = Integer.parseInt(args[1]);
+		long flights = Long.parseLong(args[2]);
+		String output = args[3];
+		long baseSeed = args.length > 4 ? Long.parseLong(args[4]) : 0L;
+		int sampleInterval = args.length > 5 ? Integer.parseInt(args[5]) : FlightSimulator.SAMPLE_INTERVAL;
+		String modelFile = args.length > 6 ? args[6] : null;
+
+		GridConfig grid = GridConfig.fromProperties();
+		FlightSimulator simulator = new FlightSimulator(grid, MAX_TICKS, sampleInterval);
+		// Without a model, every flight gets its own seeded random pilot.
+		NeuralNetworkAutopilot model = modelFile != null
+				? NeuralNetworkAutopilot.load(modelFile, InferenceMode.DOUBLE, 0)
+				: null;
+		if (model != null) {
+			grid.requireInputSize(modelFile, model.getInputSize());
+		}
+		ColumnStreamBuffer flight = new ColumnStreamBuffer(grid.height(), grid.horizonColumns(),
+				GridConfig.SCALAR_FEATURES);
+		long kept = 0;
+		long rows = 0;
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(output)))) {
+			flight.writeHeader(out);
+			for (long seed = baseSeed + shardIndex; seed < baseSeed + flights; seed += shardCount) {
+				IAutopilotController pilot = model != null ? model : new RandomAutopilot(seed);
+				FlightResult result = simulator.fly(pilot, seed, flight);
+				if (result.score() > GameView.GOOD_FLIGHT_THRESHOLD) {
+					flight.writeFlight(out, seed);
+					kept++;
+					rows += flight.size();
+				}
+				flight.clear();
+			}
+		}
+		System.out.println("Shard " + shardIndex + "/" + shardCount + ": kept " + kept + " flights, " + rows
+				+ " samples in " + output);
+	}
+}
@@ -0,0 +1,200 @@
+package ie.atu.sw;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ie.atu.sw.autopilot.InferenceMode;
+import ie.atu.sw.autopilot.NeuralNetworkAutopilot;
+import ie.atu.sw.autopilot.RandomAutopilot;
+import ie.atu.sw.autopilot.TrainingDataBuffer;
+import ie.atu.sw.autopilot.TrainingSample;
+
+/**
+ * Searches the autopilot's hyperparameters headlessly.
+ * <p>
+ * A shared, read-only dataset of seeded exploratory flights is recorded once.
+ * Each configuration keeps the flights that clear its good-flight threshold,
+ * trains a fresh network on them and is then flown through the same seeded
+ * evaluation caves. Configurations run concurrently, one per core, and are
+ * ranked by mean flight score with training time as the tie-breaker.
+ * <p>
+ * Usage: {@code SweepRunner [grid | random <count> [seed]]}, with the cave size
+ * taken from {@link GridConfig#fromProperties()}.
+ */
+public class SweepRunner {
+	private static final int DATASET_FLIGHTS = 500;
+	private static final int EVALUATION_FLIGHTS = 20;
+	private static final int MAX_TICKS = 3000;
+	private static final long DATASET_SEED = 1_000L;
+	private static final long EVALUATION_SEED = 1_000_000L;
+
+	/**
+	 * One point in the search space.
+	 */
+	public record SweepConfig(int hiddenSize, int epochs, double minTemperature, double maxTemperature,
+			double goodFlightThreshold) {
+	}
+
+	/**
+	 * How a configuration trained and flew.
+	 */
+	public record SweepResult(SweepConfig config, int trainingSamples, long trainingMillis, double meanScore,
+			double worstScore, double bestScore) {
+	}
+
+	// A recorded exploratory flight; samples are shared read-only between configurations.
+	private record RecordedFlight(double score, List<TrainingSample> samples) {
+	}
+
+	public static void main(String[] args) throws Exception {
+		GridConfig grid = GridConfig.fromProperties();
+		int inputSize = grid.inputSize();
+		List<SweepConfig> configs;
+		if (args.length > 0 && args[0].equals("random")) {
+			int count = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+			long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+			configs = randomSpace(inputSize, count, seed);
+		} else {
+			configs = gridSpace(inputSize);
+		}
+
+		FlightSimulator simulator = new FlightSimulator(grid, MAX_TICKS);
+		List<RecordedFlight> dataset = recordDataset(simulator);
+		System.out.println("Recorded " + dataset.size() + " flights | Sweeping " + configs.size() + " configurations");
+
+		List<SweepResult> results = sweep(configs, dataset, simulator, inputSize);
+		printReport(results);
+	}
+
+	/**
+	 * The default grid, centred on the values GameView and NeuralNetworkAutopilot use today.
+	 */
+	public static List<SweepConfig> gridSpace(int inputSize) {
+		int defaultHidden = NeuralNetworkAutopilot.defaultHiddenSize(inputSize);
+		int[] hiddenSizes = { defaultHidden / 4, defaultHidden / 2, defaultHidden };
+		int[] epochCounts = { 500, 2000, 5000 };
+		double[][] temperatures = {
+				{ NeuralNetworkAutopilot.DEFAULT_MIN_TEMPERATURE, NeuralNetworkAutopilot.DEFAULT_MAX_TEMPERATURE },
+				{ 0.25, 1.0 } };
+		double[] thresholds = { GameView.GOOD_FLIGHT_THRESHOLD, 2 * GameView.GOOD_FLIGHT_THRESHOLD };
+
+		List<SweepConfig> configs = new ArrayList<>();
+		for (int hidden : hiddenSizes) {
+			for (int epochs : epochCounts) {
+				for (double[] t : temperatures) {
+					for (double threshold : thresholds) {
+						configs.add(new SweepConfig(Math.max(1, hidden), epochs, t[0], t[1], threshold));
+					}
+				}
+			}
+		}
+		return configs;
+	}
+
+	/**
+	 * Samples configurations uniformly (log-uniformly for epochs) from ranges around the defaults.
+	 */
+	public static List<SweepConfig> randomSpace(int inputSize, int count, long seed) {
+		Random random = new Random(seed);
+		List<SweepConfig> configs = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			int hidden = 4 + random.nextInt(Math.max(1, inputSize - 4));
+			int epochs = (int) Math.round(Math.exp(Math.log(100) + random.nextDouble() * (Math.log(5000) - Math.log(100))));
+			double minTemperature = 0.1 + random.nextDouble() * 0.9;
+			double maxTemperature = minTemperature + 0.5 + random.nextDouble() * 2.5;
+			double threshold = 50 + random.nextDouble() * 250;
+			configs.add(new SweepConfig(hidden, epochs, minTemperature, maxTemperature, threshold));
+		}
+		return configs;
+	}
+
+	private static List<RecordedFlight> recordDataset(FlightSimulator simulator) {
+		List<RecordedFlight> dataset = new ArrayList<>(DATASET_FLIGHTS);
+		for (int i = 0; i < DATASET_FLIGHTS; i++) {
+			long seed = DATASET_SEED + i;
+			TrainingDataBuffer buffer = new TrainingDataBuffer();
+			FlightResult result = simulator.fly(new RandomAutopilot(seed), seed, buffer);
+			dataset.add(new RecordedFlight(result.score(), List.copyOf(buffer.toTrainingSamples())));
+		}
+		return List.copyOf(dataset);
+	}
+
+	/**
+	 * Trains and evaluates every configuration on a pool with one thread per core.
+	 */
+	private static List<SweepResult> sweep(List<SweepConfig> configs, List<RecordedFlight> dataset,
+			FlightSimulator simulator, int inputSize) throws Exception {
+		int threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<SweepResult>> futures = new ArrayList<>();
+			for (SweepConfig config : configs) {
+				futures.add(pool.submit(() -> run(config, dataset, simulator, inputSize)));
+			}
+			List<SweepResult> results = new ArrayList<>();
+			for (Future<SweepResult> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static SweepResult run(SweepConfig config, List<RecordedFlight> dataset, FlightSimulator simulator,
+			int inputSize) {
+		List<TrainingSample> samples = new ArrayList<>();
+		for (RecordedFlight flight : dataset) {
+			if (flight.score() > config.goodFlightThreshold()) {
+				samples.addAll(flight.samples());
+			}
+		}
+
+		NeuralNetworkAutopilot autopilot = new NeuralNetworkAutopilot(inputSize, config.hiddenSize(),
+				config.minTemperature(), config.maxTemperature(), InferenceMode.DOUBLE, 0);
+		// The pool already keeps every core busy, so train single-threaded and quietly.
+		autopilot.setTrainingOptions(1, 0);
+
+		long start = System.currentTimeMillis();
+		if (!samples.isEmpty()) {
+			autopilot.trainNetwork(samples, config.epochs());
+		}
+		long trainingMillis = System.currentTimeMillis() - start;
+
+		double total = 0;
+		double worst = Double.MAX_VALUE;
+		double best = 0;
+		for (int i = 0; i < EVALUATION_FLIGHTS; i++) {
+			double score = simulator.fly(autopilot, EVALUATION_SEED + i).score();
+			total += score;
+			worst = Math.min(worst, score);
+			best = Math.max(best, score);
+		}
+		SweepResult result = new SweepResult(config, samples.size(), trainingMillis, total / EVALUATION_FLIGHTS,
+				worst, best);
+		System.out.printf("Done: %s | Mean score: %.1f | Training: %d ms%n", config, result.meanScore(), trainingMillis);
+		return result;
+	}
+
+	private static void printReport(List<SweepResult> results) {
+		List<SweepResult> ranked = new ArrayList<>(results);
+		ranked.sort(Comparator.comparingDouble(SweepResult::meanScore).reversed()
+				.thenComparingLong(SweepResult::trainingMillis));
+
+		System.out.println();
+		System.out.printf("%-4s %7s %7s %6s %6s %9s %8s %10s %9s %9s %9s%n", "Rank", "Hidden", "Epochs", "MinT",
+				"MaxT", "Threshold", "Samples", "Train ms", "Mean", "Worst", "Best");
+		int rank = 1;
+		for (SweepResult r : ranked) {
+			SweepConfig c = r.config();
+			System.out.printf("%-4d %7d %7d %6.2f %6.2f %9.1f %8d %10d %9.1f %9.1f %9.1f%n", rank++, c.hiddenSize(),
+					c.epochs(), c.minTemperature(), c.maxTemperature(), c.goodFlightThreshold(), r.trainingSamples(),
+					r.trainingMillis(), r.meanScore(), r.worstScore(), r.bestScore());
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package ie.atu.sw.autopilot;
+
+import org.encog.engine.network.activation.ActivationLinear;
+import org.encog.engine.network.activation.ActivationSigmoid;
+import org.encog.neural.networks.BasicNetwork;
+
+/**
+ * A dense double-precision snapshot of a trained feed-forward
+ * {@link BasicNetwork} that evaluates many states in one pass.
+ * <p>
+ * Each weight row is loaded once per batch and applied to every state in
+ * the batch while it is still in cache, so the cost of streaming the weights
+ * is shared by every request in the batch instead of paid per decision.
+ * <p>
+ * Keeps scratch buffers, so a single instance must not be shared between threads.
+ */
+public class BatchedNetwork {
+	private final int[] layerSizes;  // neuron counts, input layer first, bias excluded
+	private final double[][] weights; // per layer transition, row-major [to][from]
+	private final double[][] biases;
+	private double[][][] activations = new double[0][][]; // scratch: [layer][batch][neuron]
+
+	/**
+	 * Copies the current weights of the given network, which must have sigmoid
+	 * hidden layers and a linear output layer.
+	 */
+	public BatchedNetwork(BasicNetwork network) {
+		int layerCount = network.getLayerCount();
+		layerSizes = new int[layerCount];
+		for (int l = 0; l < layerCount; l++) {
+			layerSizes[l] = network.getLayerNeuronCount(l);
+		}
+		for (int l = 1; l < layerCount - 1; l++) {
+			if (!(network.getActivation(l) instanceof ActivationSigmoid)) {
+				throw new IllegalArgumentException("Hidden layer " + l + " must use a sigmoid activation");
+			}
+		}
+		if (!(network.getActivation(layerCount - 1) instanceof ActivationLinear)) {
+			throw new IllegalArgumentException("Output layer must use a linear activation");
+		}
+
+		weights = new double[layerCount - 1][];
+		biases = new double[layerCount - 1][];
+		for (int l = 0; l < layerCount - 1; l++) {
+			int from = layerSizes[l];
+			int to = layerSizes[l + 1];
+			double[] w = new double[to * from];
+			double[] b = new double[to];
+			for (int j = 0; j < to; j++) {
+				for (int i = 0; i < from; i++) {
+					w[j * from + i] = network.getWeight(l, i, j);
+				}
+				if (network.isLayerBiased(l)) {
+					b[j] = network.getWeight(l, from, j);
+				}
+			}
+			weights[l] = w;
+			biases[l] = b;
+		}
+	}
+
+	/**
+	 * Evaluates the first {@code count} states. Only the first
+	 * {@code getInputCount()} entries of each state are read.
+	 *
+	 * @return a new array of output activations per state.
+	 */
+	public double[][] compute(double[][] states, int count) {
+		ensureCapacity(count);
+		double[][] input = activations[0];
+		for (int b = 0; b < count; b++) {
+			System.arraycopy(states[b], 0, input[b], 0, layerSizes[0]);
+		}
+
+		int last = weights.length - 1;
+		for (int l = 0; l <= last; l++) {
+			double[][] in = activations[l];
+			double[][] out = activations[l + 1];
+			double[] w = weights[l];
+			double[] bias = biases[l];
+			int from = layerSizes[l];
+			for (int j = 0; j < bias.length; j++) {
+				int row = j * from;
+				for (int b = 0; b < count; b++) {
+					double[] x = in[b];
+					double acc = bias[j];
+					for (int i = 0; i < from; i++) {
+						acc += w[row + i] * x[i];
+					}
+					out[b][j] = l == last ? acc : 1.0 / (1.0 + Math.exp(-acc));
+				}
+			}
+		}
+
+		double[][] result = new double[count][];
+		for (int b = 0; b < count; b++) {
+			result[b] = activations[last + 1][b].clone();
+		}
+		return result;
+	}
+
+	public int getInputCount() {
+		return layerSizes[0];
+	}
+
+	private void ensureCapacity(int count) {
+		if (activations.length > 0 && activations[0].length >= count) {
+			return;
+		}
+		activations = new double[layerSizes.length][][];
+		for (int l = 0; l < layerSizes.length; l++) {
+			activations[l] = new double[count][layerSizes[l]];
+		}
+	}
+}
@@ -0,0 +1,438 @@
+package ie.atu.sw.autopilot;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+import org.encog.ml.data.MLData;
+import org.encog.ml.data.MLDataPair;
+import org.encog.ml.data.MLDataSet;
+import org.encog.ml.data.basic.BasicMLData;
+import org.encog.ml.data.basic.BasicMLDataPair;
+
+/**
+ * A compact alternative to {@link TrainingDataBuffer} for densely recorded
+ * flights.
+ * <p>
+ * Consecutive samples see almost the same horizon, because the cave only
+ * scrolls one column per tick. Instead of a full feature vector per sample,
+ * every cave column is appended once to a shared column stream, and a sample
+ * stores only the stream offset of its first horizon column, its scalar
+ * features and its movement label. Full feature vectors, laid out exactly as
+ * {@code CaveModel.sampleHorizon} lays them out, are materialized on demand
+ * when a training record or a CSV row is built; {@link #asDataSet} lets a
+ * trainer read the samples without ever holding them densely.
+ * <p>
+ * The recorder must append every column that scrolls into the horizon, in
+ * order; a sample's horizon is always the last {@code horizonColumns}
+ * columns appended before it.
+ * <p>
+ * The same layout is used on disk. A column-stream file is a header
+ * ({@link #writeHeader}) followed by flight blocks ({@link #writeFlight}),
+ * each holding one flight's columns once plus its per-sample scalars and
+ * labels, so a file is roughly as compact as the buffer that wrote it.
+ */
+public class ColumnStreamBuffer {
+	public static final String FILE_EXTENSION = ".cols";
+	/**
+	 * Returned by {@link #readFlight} at the end of a file.
+	 */
+	public static final long NO_FLIGHT = Long.MIN_VALUE;
+	private static final int MAGIC = 0x43535452;   // "CSTR"
+	private static final int VERSION = 1;
+	private static final byte FLIGHT_MARKER = 'F';
+	private static final double[][] ONE_HOT = { TrainingDataBuffer.toOneHot(-1), TrainingDataBuffer.toOneHot(0),
+			TrainingDataBuffer.toOneHot(1) }; // shared, never written
+
+	private final int columnHeight;
+	private final int horizonColumns;
+	private final int scalarCount;
+
+	private byte[] columns = new byte[1024];   // column c occupies [c * columnHeight, (c + 1) * columnHeight)
+	private int columnCount = 0;
+	private int[] offsets = new int[256];      // first horizon column of each sample
+	private double[] scalars = new double[256]; // scalarCount values per sample
+	private byte[] movements = new byte[256];  // -1, 0 or 1 per sample
+	private int size = 0;
+
+	/**
+	 * @param columnHeight   cells per cave column
+	 * @param horizonColumns columns in each sample's horizon
+	 * @param scalarCount    scalar features following the horizon cells
+	 */
+	public ColumnStreamBuffer(int columnHeight, int horizonColumns, int scalarCount) {
+		this.columnHeight = columnHeight;
+		this.horizonColumns = horizonColumns;
+		this.scalarCount = scalarCount;
+		this.scalars = new double[256 * scalarCount];
+	}
+
+	/**
+	 * Appends a cave column to the stream. The column is copied.
+	 */
+	public void appendColumn(byte[] column) {
+		ensureColumnCapacity(columnCount + 1);
+		System.arraycopy(column, 0, columns, columnCount * columnHeight, columnHeight);
+		columnCount++;
+	}
+
+	/**
+	 * Records a sample whose horizon is the last {@code horizonColumns} columns appended.
+	 *
+	 * @param scalarFeatures the features following the horizon (lastMovement, row, terminal, good)
+	 * @param movement       the label: -1 for up, 0 for straight, 1 for down
+	 */
+	public void addSample(double[] scalarFeatures, int movement) {
+		if (columnCount < horizonColumns) {
+			throw new IllegalStateException("Only " + columnCount + " of " + horizonColumns + " horizon columns appended");
+		}
+		ensureSampleCapacity(size + 1);
+		offsets[size] = columnCount - horizonColumns;
+		System.arraycopy(scalarFeatures, 0, scalars, size * scalarCount, scalarCount);
+		movements[size] = (byte) movement;
+		size++;
+	}
+
+	/**
+	 * The number of samples stored.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Cells per cave column.
+	 */
+	public int getColumnHeight() {
+		return columnHeight;
+	}
+
+	/**
+	 * The length of a materialized feature vector.
+	 */
+	public int getFeatureCount() {
+		return horizonColumns * columnHeight + scalarCount;
+	}
+
+	/**
+	 * The movement label of a sample: -1 for up, 0 for straight, 1 for down.
+	 */
+	public int getMovement(int index) {
+		return movements[index];
+	}
+
+	/**
+	 * Writes the full feature vector of a sample into {@code features}, which
+	 * must hold at least {@link #getFeatureCount()} values.
+	 */
+	public void materialize(int index, double[] features) {
+		int cell = offsets[index] * columnHeight;
+		int cells = horizonColumns * columnHeight;
+		for (int i = 0; i < cells; i++) {
+			features[i] = columns[cell + i];
+		}
+		System.arraycopy(scalars, index * scalarCount, features, cells, scalarCount);
+	}
+
+	/**
+	 * A read-only Encog view of the stored samples. Each record's feature vector is
+	 * materialized into the caller's pair when it is read, so a trainer only ever
+	 * holds the rows it is working on; labels are shared constant one-hot arrays.
+	 * Views hold no state of their own and may be read from several threads, but
+	 * the buffer must not change while one is in use.
+	 *
+	 * @param neutral samples it accepts are presented with the neutral label
+	 *                (no movement) instead of their own, or null to keep every label
+	 */
+	public MLDataSet asDataSet(Predicate<double[]> neutral) {
+		return new DataSetView(neutral);
+	}
+
+	/**
+	 * Materializes every sample into a dense {@link TrainingDataBuffer}.
+	 */
+	public TrainingDataBuffer toTrainingDataBuffer() {
+		TrainingDataBuffer buffer = new TrainingDataBuffer();
+		for (int i = 0; i < size; i++) {
+			double[] features = new double[getFeatureCount()];
+			materialize(i, features);
+			buffer.addSample(features, TrainingDataBuffer.toOneHot(getMovement(i)));
+		}
+		return buffer;
+	}
+
+	/**
+	 * The number of bytes of sample storage in use, excluding spare capacity.
+	 */
+	public long storageBytes() {
+		return (long) columnCount * columnHeight + size * (4L + 8L * scalarCount + 1L);
+	}
+
+	/**
+	 * Clears all stored samples and columns.
+	 */
+	public void clear() {
+		columnCount = 0;
+		size = 0;
+	}
+
+	/**
+	 * Writes one CSV row per sample in the {@link TrainingDataBuffer#saveToCSV}
+	 * format, materializing one row at a time.
+	 *
+	 * @param prefix text written at the start of every row, e.g. a key column ending in ','
+	 */
+	public void writeRows(PrintWriter pw, String prefix) {
+		double[] features = new double[getFeatureCount()];
+		for (int i = 0; i < size; i++) {
+			materialize(i, features);
+			StringBuilder row = new StringBuilder(prefix);
+			for (double f : features) {
+				row.append(f).append(",");
+			}
+			row.append(getMovement(i));
+			pw.println(row.toString());
+		}
+	}
+
+	/**
+	 * Writes the stored samples to a CSV file with a "f1,...,fN,label" header.
+	 */
+	public void saveToCSV(String filePath) {
+		try (PrintWriter pw = new PrintWriter(new FileWriter(filePath))) {
+			pw.println(TrainingDataBuffer.csvHeader(getFeatureCount()));
+			writeRows(pw, "");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes the file header that {@link #readHeader} expects, describing this buffer's layout.
+	 */
+	public void writeHeader(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(columnHeight);
+		out.writeInt(horizonColumns);
+		out.writeInt(scalarCount);
+	}
+
+	/**
+	 * Reads a file header and returns an empty buffer with the layout it describes.
+	 */
+	public static ColumnStreamBuffer readHeader(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a column-stream file");
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported column-stream version " + version);
+		}
+		int columnHeight = in.readInt();
+		int horizonColumns = in.readInt();
+		int scalarCount = in.readInt();
+		if (columnHeight < 1 || horizonColumns < 1 || scalarCount < 0) {
+			throw new IOException("Invalid column-stream layout " + columnHeight + "x" + horizonColumns + "+" + scalarCount);
+		}
+		return new ColumnStreamBuffer(columnHeight, horizonColumns, scalarCount);
+	}
+
+	/**
+	 * Returns true if the bytes start like a file written with {@link #writeHeader}.
+	 */
+	public static boolean isColumnStream(byte[] start) {
+		return start.length >= 4
+				&& ((start[0] & 0xFF) << 24 | (start[1] & 0xFF) << 16 | (start[2] & 0xFF) << 8 | (start[3] & 0xFF)) == MAGIC;
+	}
+
+	/**
+	 * Writes everything in the buffer as one flight block.
+	 */
+	public void writeFlight(DataOutputStream out, long seed) throws IOException {
+		out.writeByte(FLIGHT_MARKER);
+		out.writeLong(seed);
+		out.writeInt(columnCount);
+		out.writeInt(size);
+		out.write(columns, 0, columnCount * columnHeight);
+		for (int i = 0; i < size; i++) {
+			out.writeInt(offsets[i]);
+			for (int s = 0; s < scalarCount; s++) {
+				out.writeDouble(scalars[i * scalarCount + s]);
+			}
+			out.writeByte(movements[i]);
+		}
+	}
+
+	/**
+	 * Reads the next flight block and appends its columns and samples to this
+	 * buffer, which must have the layout given by the file's header.
+	 *
+	 * @return the flight's seed, or {@link #NO_FLIGHT} at the end of the file
+	 * @throws java.io.EOFException if the file ends part way through a flight
+	 */
+	public long readFlight(DataInputStream in) throws IOException {
+		int marker = in.read();
+		if (marker < 0) {
+			return NO_FLIGHT;
+		}
+		if (marker != FLIGHT_MARKER) {
+			throw new IOException("Corrupt column-stream file: expected a flight block");
+		}
+		long seed = in.readLong();
+		int flightColumns = in.readInt();
+		int flightSamples = in.readInt();
+		if (flightColumns < 0 || flightSamples < 0) {
+			throw new IOException("Corrupt column-stream file: " + flightColumns + " columns, " + flightSamples + " samples");
+		}
+
+		int base = columnCount;
+		ensureColumnCapacity(base + flightColumns);
+		in.readFully(columns, base * columnHeight, flightColumns * columnHeight);
+		ensureSampleCapacity(size + flightSamples);
+		for (int i = size; i < size + flightSamples; i++) {
+			int offset = in.readInt();
+			if (offset < 0 || offset + horizonColumns > flightColumns) {
+				throw new IOException("Corrupt column-stream file: horizon at column " + offset + " of " + flightColumns);
+			}
+			offsets[i] = base + offset;
+			for (int s = 0; s < scalarCount; s++) {
+				scalars[i * scalarCount + s] = in.readDouble();
+			}
+			movements[i] = in.readByte();
+		}
+		// Only commit the block once all of it has been read, so a truncated flight leaves the buffer unchanged.
+		columnCount = base + flightColumns;
+		size += flightSamples;
+		return seed;
+	}
+
+	private void ensureColumnCapacity(int count) {
+		long end = (long) count * columnHeight;
+		if (end > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("Column stream full: " + count + " columns of " + columnHeight + " cells");
+		}
+		if (end > columns.length) {
+			columns = Arrays.copyOf(columns, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(end, columns.length * 2L)));
+		}
+	}
+
+	private void ensureSampleCapacity(int count) {
+		if (count > offsets.length) {
+			int capacity = Math.max(count, offsets.length * 2);
+			offsets = Arrays.copyOf(offsets, capacity);
+			scalars = Arrays.copyOf(scalars, capacity * scalarCount);
+			movements = Arrays.copyOf(movements, capacity);
+		}
+	}
+
+	/*
+	 * The view returned by asDataSet. It keeps no cursor or scratch space: every
+	 * record is materialized straight into the arrays of the pair passed in.
+	 */
+	private final class DataSetView implements MLDataSet {
+		private final Predicate<double[]> neutral;
+
+		DataSetView(Predicate<double[]> neutral) {
+			this.neutral = neutral;
+		}
+
+		@Override
+		public void getRecord(long index, MLDataPair pair) {
+			int i = (int) index;
+			if (i < 0 || i >= size) {
+				throw new IndexOutOfBoundsException("Sample " + i + " of " + size);
+			}
+			double[] features = pair.getInputArray();
+			if (features == null || features.length != getFeatureCount()) {
+				features = new double[getFeatureCount()];
+				pair.setInputArray(features);
+			}
+			materialize(i, features);
+			pair.setIdealArray(neutral != null && neutral.test(features) ? ONE_HOT[1] : ONE_HOT[movements[i] + 1]);
+		}
+
+		@Override
+		public MLDataPair get(int index) {
+			MLDataPair pair = new BasicMLDataPair(new BasicMLData(getFeatureCount()), new BasicMLData(0));
+			getRecord(index, pair);
+			return pair;
+		}
+
+		@Override
+		public long getRecordCount() {
+			return size;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public int getInputSize() {
+			return getFeatureCount();
+		}
+
+		@Override
+		public int getIdealSize() {
+			return ONE_HOT.length;
+		}
+
+		@Override
+		public boolean isSupervised() {
+			return true;
+		}
+
+		@Override
+		public MLDataSet openAdditional() {
+			return new DataSetView(neutral);
+		}
+
+		@Override
+		public Iterator<MLDataPair> iterator() {
+			return new Iterator<MLDataPair>() {
+				private int next;
+
+				@Override
+				public boolean hasNext() {
+					return next < size;
+				}
+
+				@Override
+				public MLDataPair next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					return get(next++);
+				}
+			};
+		}
+
+		@Override
+		public void add(MLData data) {
+			throw new UnsupportedOperationException("ColumnStreamBuffer views are read-only");
+		}
+
+		@Override
+		public void add(MLData input, MLData ideal) {
+			throw new UnsupportedOperationException("ColumnStreamBuffer views are read-only");
+		}
+
+		@Override
+		public void add(MLDataPair pair) {
+			throw new UnsupportedOperationException("ColumnStreamBuffer views are read-only");
+		}
+
+		@Override
+		public void close() {
+			// Nothing to release; the buffer owns the storage.
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package ie.atu.sw.autopilot;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * A bounded LRU cache of network output activations keyed on the compact
+ * state the autopilot sees.
+ * <p>
+ * A state vector is a binary horizon (one cell per grid square, 0 or 1)
+ * followed by a few scalar features. The horizon is packed into a bit set and
+ * the scalars are kept bit-for-bit, so equal keys mean equal inputs and a hit
+ * can safely skip the forward pass. Non-zero horizon cells all pack to 1, which
+ * is exact for the cave grid.
+ * <p>
+ * Not thread safe; each autopilot owns its own cache.
+ */
+public class DecisionCache {
+	private final int horizonLength;
+	private final int scalarCount;
+	private final Map<StateKey, double[]> entries;
+	private long hits;
+	private long misses;
+
+	/**
+	 * @param horizonLength the number of leading binary grid cells in a state
+	 * @param scalarCount   the number of scalar features following the horizon
+	 * @param capacity      the maximum number of cached states
+	 */
+	public DecisionCache(int horizonLength, int scalarCount, int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+		}
+		this.horizonLength = horizonLength;
+		this.scalarCount = scalarCount;
+		this.entries = new LinkedHashMap<>(Math.min(capacity, 1 << 16), 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<StateKey, double[]> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cached activations for the state, or computes, stores and
+	 * returns them on a miss. The returned array must not be modified.
+	 *
+	 * @param state   the input state
+	 * @param forward the forward pass; its result is copied before being stored
+	 */
+	public double[] getOrCompute(double[] state, UnaryOperator<double[]> forward) {
+		StateKey key = keyFor(state);
+		double[] activations = entries.get(key);
+		if (activations != null) {
+			hits++;
+			return activations;
+		}
+		misses++;
+		activations = forward.apply(state).clone();
+		entries.put(key, activations);
+		return activations;
+	}
+
+	/**
+	 * Drops every cached entry. Must be called whenever the network weights change.
+	 */
+	public void invalidate() {
+		entries.clear();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * The fraction of lookups served from the cache since it was created.
+	 */
+	public double getHitRate() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0.0 : (double) hits / lookups;
+	}
+
+	private StateKey keyFor(double[] state) {
+		int horizonWords = (horizonLength + 63) >>> 6;
+		long[] words = new long[horizonWords + scalarCount];
+		for (int i = 0; i < horizonLength; i++) {
+			if (state[i] != 0) {
+				words[i >>> 6] |= 1L << (i & 63);
+			}
+		}
+		for (int i = 0; i < scalarCount; i++) {
+			words[horizonWords + i] = Double.doubleToLongBits(state[horizonLength + i]);
+		}
+		return new StateKey(words);
+	}
+
+	private static final class StateKey {
+		private final long[] words;
+		private final int hash;
+
+		StateKey(long[] words) {
+			this.words = words;
+			this.hash = Arrays.hashCode(words);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof StateKey other && hash == other.hash && Arrays.equals(words, other.words);
+		}
+	}
+}
@@ -11,6 +11,16 @@ public interface IAutopilotController {
 	 */
 	int getMovement(double[] state);
 
+	/*
+	 * Called before each flight with the flight's seed. Implementations that
+	 * sample their decisions reset their per-flight state and seed the sampling
+	 * from it, so the same controller on the same seed flies the same flight.
+	 * 
+	 * @param seed the seed of the cave about to be flown
+	 */
+	default void startFlight(long seed) {
+	}
+
 	/*
 	 * Train the neural network with the given training data.
 	 * 
@@ -18,4 +28,15 @@ public interface IAutopilotController {
 	 * @param epochs the number of training epochs to perform
 	 */
 	void trainNetwork(List<TrainingSample> trainingData, int epochs);
+
+	/*
+	 * Train with the samples held in a buffer. Implementations that can train on the
+	 * buffer in place override this; the default converts it to training samples.
+	 * 
+	 * @param buffer the recorded samples, left unchanged
+	 * @param epochs the number of training epochs to perform
+	 */
+	default void trainNetwork(TrainingDataBuffer buffer, int epochs) {
+		trainNetwork(buffer.toTrainingSamples(), epochs);
+	}
 }
@@ -0,0 +1,17 @@
+package ie.atu.sw.autopilot;
+
+/**
+ * Selects the arithmetic used by {@link NeuralNetworkAutopilot} when it makes a
+ * decision. Training always runs in double precision; the mode only affects the
+ * forward pass used by {@code getMovement}.
+ */
+public enum InferenceMode {
+	/** Run the Encog network directly in double precision. */
+	DOUBLE,
+
+	/**
+	 * After every retrain, quantize the frozen weights to int8 and decide using
+	 * the integer forward pass of {@link QuantizedNetwork}.
+	 */
+	INT8
+}
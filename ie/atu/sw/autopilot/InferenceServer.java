@@ -0,0 +1,264 @@
+package ie.atu.sw.autopilot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves autopilot decisions from one shared model to many game clients over
+ * a loopback socket.
+ * <p>
+ * Each connection is handled by its own thread, which queues the client's
+ * state and waits. A single batching thread drains the queue, waiting at most
+ * the batch window after the first request for more to arrive, and evaluates
+ * the whole batch with {@link NeuralNetworkAutopilot#computeBatch}. Clients
+ * receive the raw activations and sample their own movement, so per-flight
+ * temperature state stays on the client; see {@link RemoteAutopilot}.
+ * <p>
+ * Protocol, big-endian: a request is an int opcode. {@code OP_DECIDE} is
+ * followed by an int length and that many doubles, and answered with an int
+ * length and the output activations. {@code OP_STATS} is answered with a
+ * UTF string summarising latency and batch sizes.
+ * <p>
+ * Usage: {@code InferenceServer <model.eg> [port] [batchWindowMicros] [maxBatchSize]}
+ */
+public class InferenceServer implements AutoCloseable {
+	public static final int DEFAULT_PORT = 5055;
+	public static final int OP_DECIDE = 1;
+	public static final int OP_STATS = 2;
+
+	private static final int LATENCY_SAMPLES = 1 << 16; // recent latencies kept for percentiles
+
+	private final NeuralNetworkAutopilot model;
+	private final long batchWindowNanos;
+	private final int maxBatchSize;
+	private final ServerSocket serverSocket;
+	private final BlockingQueue<PendingDecision> queue = new LinkedBlockingQueue<>();
+	private final ExecutorService connections = Executors.newCachedThreadPool(daemonThreads("inference-client"));
+	private final Thread acceptor;
+	private final Thread batcher;
+	private final Stats stats = new Stats();
+	private volatile boolean running = true;
+
+	private record PendingDecision(double[] state, long enqueuedNanos, CompletableFuture<double[]> result) {
+	}
+
+	/**
+	 * Binds to the loopback interface and starts serving.
+	 *
+	 * @param port             the port to listen on, or 0 for any free port
+	 * @param batchWindowMicros how long the batcher waits after the first queued request for others to join it
+	 * @param maxBatchSize     the largest batch evaluated in one pass
+	 */
+	public InferenceServer(NeuralNetworkAutopilot model, int port, long batchWindowMicros, int maxBatchSize)
+			throws IOException {
+		if (maxBatchSize < 1 || batchWindowMicros < 0) {
+			throw new IllegalArgumentException("Invalid batching: window " + batchWindowMicros
+					+ " us, max batch " + maxBatchSize);
+		}
+		this.model = model;
+		this.batchWindowNanos = TimeUnit.MICROSECONDS.toNanos(batchWindowMicros);
+		this.maxBatchSize = maxBatchSize;
+		this.serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+
+		acceptor = daemonThreads("inference-acceptor").newThread(this::acceptLoop);
+		batcher = daemonThreads("inference-batcher").newThread(this::batchLoop);
+		acceptor.start();
+		batcher.start();
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.out.println("Usage: InferenceServer <model.eg> [port] [batchWindowMicros] [maxBatchSize]");
+			return;
+		}
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+		long windowMicros = args.length > 2 ? Long.parseLong(args[2]) : 200;
+		int maxBatch = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+
+		NeuralNetworkAutopilot model = NeuralNetworkAutopilot.load(args[0], InferenceMode.DOUBLE, 0);
+		try (InferenceServer server = new InferenceServer(model, port, windowMicros, maxBatch)) {
+			System.out.println("Serving " + args[0] + " on port " + server.getPort());
+			while (true) {
+				Thread.sleep(10_000);
+				System.out.println(server.getStats());
+			}
+		}
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * A one-line summary of request latency (queue to reply) and batch sizes.
+	 */
+	public String getStats() {
+		return stats.summary();
+	}
+
+	@Override
+	public void close() throws IOException {
+		running = false;
+		serverSocket.close();
+		batcher.interrupt();
+		connections.shutdownNow();
+	}
+
+	private void acceptLoop() {
+		while (running) {
+			try {
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				connections.submit(() -> serve(socket));
+			} catch (IOException e) {
+				if (running) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	private void serve(Socket socket) {
+		try (socket;
+				DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+			while (running) {
+				int op = in.readInt();
+				if (op == OP_DECIDE) {
+					int length = in.readInt();
+					if (length != model.getInputSize()) {
+						throw new IOException("Expected " + model.getInputSize() + " features, got " + length);
+					}
+					double[] state = new double[length];
+					for (int i = 0; i < state.length; i++) {
+						state[i] = in.readDouble();
+					}
+					double[] activations = decide(state);
+					out.writeInt(activations.length);
+					for (double a : activations) {
+						out.writeDouble(a);
+					}
+				} else if (op == OP_STATS) {
+					out.writeUTF(getStats());
+				} else {
+					throw new IOException("Unknown opcode " + op);
+				}
+				out.flush();
+			}
+		} catch (EOFException e) {
+			// Client disconnected.
+		} catch (IOException | InterruptedException e) {
+			if (running) {
+				System.out.println("[WARN] Dropping inference client: " + e.getMessage());
+			}
+		}
+	}
+
+	private double[] decide(double[] state) throws IOException, InterruptedException {
+		PendingDecision pending = new PendingDecision(state, System.nanoTime(), new CompletableFuture<>());
+		queue.put(pending);
+		try {
+			return pending.result().get();
+		} catch (ExecutionException e) {
+			throw new IOException("Inference failed", e.getCause());
+		}
+	}
+
+	private void batchLoop() {
+		List<PendingDecision> batch = new ArrayList<>(maxBatchSize);
+		double[][] states = new double[maxBatchSize][];
+		while (running) {
+			try {
+				batch.add(queue.take());
+				long deadline = System.nanoTime() + batchWindowNanos;
+				while (batch.size() < maxBatchSize) {
+					long remaining = deadline - System.nanoTime();
+					PendingDecision next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+
+				int count = batch.size();
+				for (int b = 0; b < count; b++) {
+					states[b] = batch.get(b).state();
+				}
+				try {
+					double[][] activations = model.computeBatch(states, count);
+					long now = System.nanoTime();
+					for (int b = 0; b < count; b++) {
+						PendingDecision pending = batch.get(b);
+						pending.result().complete(activations[b]);
+						stats.recordLatency(now - pending.enqueuedNanos());
+					}
+				} catch (RuntimeException e) {
+					batch.forEach(p -> p.result().completeExceptionally(e));
+				}
+				stats.recordBatch(count);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} finally {
+				batch.clear();
+				Arrays.fill(states, null);
+			}
+		}
+	}
+
+	private static ThreadFactory daemonThreads(String name) {
+		return runnable -> {
+			Thread thread = new Thread(runnable, name);
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	// Latency percentiles over the most recent requests, and batch sizes over all batches.
+	private static final class Stats {
+		private final long[] latencies = new long[LATENCY_SAMPLES];
+		private long requests;
+		private long batches;
+		private int maxBatch;
+
+		synchronized void recordLatency(long nanos) {
+			latencies[(int) (requests++ % LATENCY_SAMPLES)] = nanos;
+		}
+
+		synchronized void recordBatch(int size) {
+			batches++;
+			maxBatch = Math.max(maxBatch, size);
+		}
+
+		synchronized String summary() {
+			int n = (int) Math.min(requests, LATENCY_SAMPLES);
+			if (n == 0) {
+				return "Requests: 0";
+			}
+			long[] sorted = Arrays.copyOf(latencies, n);
+			Arrays.sort(sorted);
+			return String.format("Requests: %d | Batches: %d | Mean batch: %.1f | Max batch: %d | p50: %d us | p99: %d us",
+					requests, batches, (double) requests / batches, maxBatch,
+					TimeUnit.NANOSECONDS.toMicros(sorted[(int) ((n - 1) * 0.50)]),
+					TimeUnit.NANOSECONDS.toMicros(sorted[(int) ((n - 1) * 0.99)]));
+		}
+	}
+}
@@ -0,0 +1,399 @@
+package ie.atu.sw.autopilot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.encog.engine.network.activation.ActivationLinear;
+import org.encog.engine.network.activation.ActivationSigmoid;
+import org.encog.ml.data.MLDataPair;
+import org.encog.ml.data.MLDataSet;
+import org.encog.ml.data.basic.BasicMLDataPair;
+import org.encog.neural.networks.BasicNetwork;
+
+/**
+ * Trains the autopilot's input-sigmoid-linear network on shuffled mini-batches
+ * with Adam, in single precision. It minimises the same squared error as the
+ * full-batch RPROP run by {@link Trainer}, but updates the weights after every
+ * batch instead of once per pass over the data.
+ * <p>
+ * The weights are copied out of the {@link BasicNetwork} when training starts
+ * and written back when it ends, so the network is saved and loaded as usual.
+ * Each batch is split by rows between worker threads, which read their own rows
+ * from the data set and accumulate gradients privately; the gradients are then
+ * summed and applied in parallel over slices of the weights.
+ * <p>
+ * First-layer weights are stored input-major, so every input adds a scaled,
+ * contiguous weight row to the hidden sums. HotSpot vectorises these loops, and
+ * zero inputs (most grid cells) are skipped outright. Inputs are taken in
+ * blocks so that a block's weight rows stay in cache for every row of a slice.
+ */
+public class MiniBatchTrainer {
+	public static final int DEFAULT_BATCH_SIZE = 64;
+	public static final double DEFAULT_LEARNING_RATE = 0.001;
+	private static final int INPUT_BLOCK = 64;        // first-layer weight rows kept in cache per pass over a slice
+	private static final int MIN_ROWS_PER_WORKER = 8; // smaller slices cost more to hand out than to compute
+	private static final float BETA1 = 0.9f;
+	private static final float BETA2 = 0.999f;
+	private static final float EPSILON = 1e-8f;
+
+	private final BasicNetwork network;
+	private final MLDataSet trainingSet;
+	private final int epochs;
+	private final int batchSize;
+	private final float learningRate;
+	private final int threadCount;
+	private final int logInterval;
+	private final Random random;
+
+	private final int inputs;
+	private final int hidden;
+	private final int outputs;
+	// Parameter layout: w1 [input][hidden], b1 [hidden], w2 [output][hidden], b2 [output].
+	private final int b1Offset;
+	private final int w2Offset;
+	private final int b2Offset;
+	private final float[] params;
+	private final float[] m; // Adam first moment
+	private final float[] v; // Adam second moment
+	private int step;
+	private double error = Double.NaN;
+
+	public MiniBatchTrainer(BasicNetwork network, MLDataSet trainingSet, int epochs) {
+		this(network, trainingSet, epochs, DEFAULT_BATCH_SIZE, DEFAULT_LEARNING_RATE, 0, 1, new Random());
+	}
+
+	/**
+	 * @param epochs       passes over the training set
+	 * @param batchSize    samples per weight update
+	 * @param learningRate the Adam step size
+	 * @param threadCount  the number of worker threads, or 0 to use every core
+	 * @param logInterval  print progress every this many epochs, or 0 to only print the final error
+	 * @param random       shuffles the samples before every epoch
+	 */
+	public MiniBatchTrainer(BasicNetwork network, MLDataSet trainingSet, int epochs, int batchSize,
+			double learningRate, int threadCount, int logInterval, Random random) {
+		if (network.getLayerCount() != 3
+				|| !(network.getActivation(1) instanceof ActivationSigmoid)
+				|| !(network.getActivation(2) instanceof ActivationLinear)
+				|| !network.isLayerBiased(0) || !network.isLayerBiased(1)) {
+			throw new IllegalArgumentException("Expected a biased input layer, a biased sigmoid hidden layer and a linear output layer");
+		}
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+		}
+		this.network = network;
+		this.trainingSet = trainingSet;
+		this.epochs = epochs;
+		this.batchSize = batchSize;
+		this.learningRate = (float) learningRate;
+		this.threadCount = threadCount > 0 ? threadCount : Runtime.getRuntime().availableProcessors();
+		this.logInterval = logInterval;
+		this.random = random;
+
+		inputs = network.getLayerNeuronCount(0);
+		hidden = network.getLayerNeuronCount(1);
+		outputs = network.getLayerNeuronCount(2);
+		b1Offset = inputs * hidden;
+		w2Offset = b1Offset + hidden;
+		b2Offset = w2Offset + outputs * hidden;
+		params = new float[b2Offset + outputs];
+		m = new float[params.length];
+		v = new float[params.length];
+	}
+
+	/**
+	 * The mean squared error over the last completed epoch.
+	 */
+	public double getError() {
+		return error;
+	}
+
+	public void train() {
+		readWeights();
+		int sampleCount = (int) trainingSet.getRecordCount();
+		int[] order = new int[sampleCount];
+		for (int i = 0; i < sampleCount; i++) {
+			order[i] = i;
+		}
+
+		int workerCount = Math.max(1, Math.min(threadCount, batchSize / MIN_ROWS_PER_WORKER));
+		// A full batch is split evenly; a short final batch uses fewer workers, each with under 2 * MIN_ROWS_PER_WORKER rows.
+		int maxRows = Math.min(batchSize, Math.max((batchSize + workerCount - 1) / workerCount, 2 * MIN_ROWS_PER_WORKER));
+		Worker[] workers = new Worker[workerCount];
+		for (int w = 0; w < workerCount; w++) {
+			workers[w] = new Worker(maxRows);
+		}
+		ExecutorService pool = workerCount > 1 ? Executors.newFixedThreadPool(workerCount) : null;
+		try {
+			for (int epoch = 0; epoch < epochs && sampleCount > 0; epoch++) {
+				long startTime = System.currentTimeMillis();
+				shuffle(order);
+				double loss = 0;
+				for (int start = 0; start < sampleCount; start += batchSize) {
+					loss += runBatch(order, start, Math.min(batchSize, sampleCount - start), workers, pool);
+				}
+				error = loss / ((double) sampleCount * outputs);
+				long epochTime = System.currentTimeMillis() - startTime;
+
+				if (logInterval > 0 && (epoch + 1) % logInterval == 0) {
+					System.out.println("Epoch " + (epoch + 1)
+							+ " | Error: " + error
+							+ " | Time: " + epochTime + " ms");
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			System.out.println("Training interrupted, keeping the weights reached so far");
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+		writeWeights();
+		System.out.println("Training complete. Final Error: " + error);
+	}
+
+	// Computes the gradient of one batch across the workers, then applies it. Returns the summed squared error.
+	private double runBatch(int[] order, int start, int rows, Worker[] workers, ExecutorService pool)
+			throws InterruptedException {
+		int used = Math.max(1, Math.min(workers.length, rows / MIN_ROWS_PER_WORKER));
+		float scale = 2f / (rows * outputs);
+		List<Callable<Void>> tasks = new ArrayList<>(used);
+		for (int w = 0; w < used; w++) {
+			Worker worker = workers[w];
+			int from = start + rows * w / used;
+			int to = start + rows * (w + 1) / used;
+			tasks.add(() -> {
+				worker.computeGradient(order, from, to, scale);
+				return null;
+			});
+		}
+		run(tasks, pool);
+
+		step++;
+		float correction = (float) (learningRate * Math.sqrt(1 - Math.pow(BETA2, step)) / (1 - Math.pow(BETA1, step)));
+		tasks.clear();
+		for (int w = 0; w < used; w++) {
+			int from = params.length * w / used;
+			int to = params.length * (w + 1) / used;
+			tasks.add(() -> {
+				applyGradient(workers, used, from, to, correction);
+				return null;
+			});
+		}
+		run(tasks, pool);
+
+		double loss = 0;
+		for (int w = 0; w < used; w++) {
+			loss += workers[w].loss;
+		}
+		return loss;
+	}
+
+	private static void run(List<Callable<Void>> tasks, ExecutorService pool) throws InterruptedException {
+		if (pool == null || tasks.size() == 1) {
+			for (Callable<Void> task : tasks) {
+				try {
+					task.call();
+				} catch (Exception e) {
+					throw new IllegalStateException("Training batch failed", e);
+				}
+			}
+			return;
+		}
+		try {
+			for (Future<Void> future : pool.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Training batch failed", e.getCause());
+		}
+	}
+
+	// Sums the workers' gradients over [from, to), clears them and takes an Adam step.
+	private void applyGradient(Worker[] workers, int used, int from, int to, float correction) {
+		for (int p = from; p < to; p++) {
+			float g = 0;
+			for (int w = 0; w < used; w++) {
+				g += workers[w].gradient[p];
+				workers[w].gradient[p] = 0;
+			}
+			m[p] = BETA1 * m[p] + (1 - BETA1) * g;
+			v[p] = BETA2 * v[p] + (1 - BETA2) * g * g;
+			params[p] -= correction * m[p] / ((float) Math.sqrt(v[p]) + EPSILON);
+		}
+	}
+
+	private void shuffle(int[] order) {
+		for (int i = order.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+	}
+
+	private void readWeights() {
+		for (int j = 0; j < hidden; j++) {
+			for (int i = 0; i < inputs; i++) {
+				params[i * hidden + j] = (float) network.getWeight(0, i, j);
+			}
+			params[b1Offset + j] = (float) network.getWeight(0, inputs, j);
+		}
+		for (int k = 0; k < outputs; k++) {
+			for (int j = 0; j < hidden; j++) {
+				params[w2Offset + k * hidden + j] = (float) network.getWeight(1, j, k);
+			}
+			params[b2Offset + k] = (float) network.getWeight(1, hidden, k);
+		}
+	}
+
+	private void writeWeights() {
+		for (int j = 0; j < hidden; j++) {
+			for (int i = 0; i < inputs; i++) {
+				network.setWeight(0, i, j, params[i * hidden + j]);
+			}
+			network.setWeight(0, inputs, j, params[b1Offset + j]);
+		}
+		for (int k = 0; k < outputs; k++) {
+			for (int j = 0; j < hidden; j++) {
+				network.setWeight(1, j, k, params[w2Offset + k * hidden + j]);
+			}
+			network.setWeight(1, hidden, k, params[b2Offset + k]);
+		}
+	}
+
+	/*
+	 * One thread's share of a batch: its own data set cursor, row buffers and
+	 * gradient. The hidden buffer holds activations on the way forward and is
+	 * overwritten with the hidden deltas on the way back.
+	 */
+	private final class Worker {
+		private final MLDataSet data = trainingSet.openAdditional();
+		private final MLDataPair pair = BasicMLDataPair.createPair(inputs, outputs);
+		private final float[][] x;
+		private final float[][] h;
+		private final float[][] ideal;
+		private final float[] outputDelta = new float[outputs];
+		private final float[] gradient = new float[params.length];
+		private double loss;
+
+		Worker(int maxRows) {
+			x = new float[maxRows][inputs];
+			h = new float[maxRows][hidden];
+			ideal = new float[maxRows][outputs];
+		}
+
+		void computeGradient(int[] order, int from, int to, float scale) {
+			int rows = to - from;
+			load(order, from, rows);
+			forwardHidden(rows);
+
+			loss = 0;
+			for (int r = 0; r < rows; r++) {
+				float[] hr = h[r];
+				for (int k = 0; k < outputs; k++) {
+					int w2 = w2Offset + k * hidden;
+					float o = params[b2Offset + k];
+					for (int j = 0; j < hidden; j++) {
+						o += hr[j] * params[w2 + j];
+					}
+					float diff = o - ideal[r][k];
+					loss += diff * diff;
+					outputDelta[k] = scale * diff;
+				}
+				// Second layer gradient, then turn the activations into hidden deltas.
+				for (int k = 0; k < outputs; k++) {
+					float d = outputDelta[k];
+					int w2 = w2Offset + k * hidden;
+					gradient[b2Offset + k] += d;
+					for (int j = 0; j < hidden; j++) {
+						gradient[w2 + j] += d * hr[j];
+					}
+				}
+				for (int j = 0; j < hidden; j++) {
+					float back = 0;
+					for (int k = 0; k < outputs; k++) {
+						back += outputDelta[k] * params[w2Offset + k * hidden + j];
+					}
+					float delta = back * hr[j] * (1 - hr[j]);
+					hr[j] = delta;
+					gradient[b1Offset + j] += delta;
+				}
+			}
+			backwardInputs(rows);
+		}
+
+		private void load(int[] order, int from, int rows) {
+			for (int r = 0; r < rows; r++) {
+				data.getRecord(order[from + r], pair);
+				double[] in = pair.getInputArray();
+				double[] target = pair.getIdealArray();
+				float[] xr = x[r];
+				for (int i = 0; i < inputs; i++) {
+					xr[i] = (float) in[i];
+				}
+				for (int k = 0; k < outputs; k++) {
+					ideal[r][k] = (float) target[k];
+				}
+			}
+		}
+
+		// h = sigmoid(x * w1 + b1), one block of w1 rows at a time.
+		private void forwardHidden(int rows) {
+			for (int r = 0; r < rows; r++) {
+				System.arraycopy(params, b1Offset, h[r], 0, hidden);
+			}
+			for (int i0 = 0; i0 < inputs; i0 += INPUT_BLOCK) {
+				int i1 = Math.min(inputs, i0 + INPUT_BLOCK);
+				for (int r = 0; r < rows; r++) {
+					float[] xr = x[r];
+					float[] hr = h[r];
+					for (int i = i0; i < i1; i++) {
+						float xi = xr[i];
+						if (xi == 0) {
+							continue;
+						}
+						int row = i * hidden;
+						for (int j = 0; j < hidden; j++) {
+							hr[j] += xi * params[row + j];
+						}
+					}
+				}
+			}
+			for (int r = 0; r < rows; r++) {
+				float[] hr = h[r];
+				for (int j = 0; j < hidden; j++) {
+					hr[j] = (float) (1.0 / (1.0 + Math.exp(-hr[j])));
+				}
+			}
+		}
+
+		// gradient(w1) += x^T * delta, one block of w1 rows at a time.
+		private void backwardInputs(int rows) {
+			for (int i0 = 0; i0 < inputs; i0 += INPUT_BLOCK) {
+				int i1 = Math.min(inputs, i0 + INPUT_BLOCK);
+				for (int r = 0; r < rows; r++) {
+					float[] xr = x[r];
+					float[] delta = h[r];
+					for (int i = i0; i < i1; i++) {
+						float xi = xr[i];
+						if (xi == 0) {
+							continue;
+						}
+						int row = i * hidden;
+						for (int j = 0; j < hidden; j++) {
+							gradient[row + j] += xi * delta[j];
+						}
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package ie.atu.sw.autopilot;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Turns the three output activations of the autopilot network into a
+ * movement by sampling a temperature-scaled softmax. The temperature rises
+ * while the same movement keeps being chosen, to encourage exploration, and
+ * falls again when it changes.
+ * <p>
+ * The temperature is per-flight state, so every flying autopilot needs its
+ * own sampler even when the activations come from a shared model. Until
+ * {@link #startFlight} is called the draws come from {@link ThreadLocalRandom};
+ * after it, a flight's decisions depend only on its seed and the activations.
+ */
+public class MovementSampler {
+	private static final double INITIAL_TEMPERATURE = 1.0;
+	private static final long SEED_MIX = 0x9E3779B97F4A7C15L; // keeps decisions apart from a cave built from the same seed
+
+	private int lastMovement = Integer.MIN_VALUE;
+	private double temperature = INITIAL_TEMPERATURE;
+	private final double minTemperature;
+	private final double maxTemperature;
+	private Random random; // null draws from ThreadLocalRandom
+
+	public MovementSampler(double minTemperature, double maxTemperature) {
+		if (minTemperature <= 0 || maxTemperature < minTemperature) {
+			throw new IllegalArgumentException("Invalid temperature bounds: " + minTemperature + ".." + maxTemperature);
+		}
+		this.minTemperature = minTemperature;
+		this.maxTemperature = maxTemperature;
+		this.temperature = Math.max(minTemperature, Math.min(maxTemperature, temperature));
+	}
+
+	/**
+	 * Starts a new flight: the temperature and last movement go back to their
+	 * initial values and the draws restart from a stream derived from the seed.
+	 */
+	public void startFlight(long seed) {
+		lastMovement = Integer.MIN_VALUE;
+		temperature = Math.max(minTemperature, Math.min(maxTemperature, INITIAL_TEMPERATURE));
+		random = new Random(seed ^ SEED_MIX);
+	}
+
+	/**
+	 * Chooses the next movement from the output activations (up, straight, down).
+	 *
+	 * @return -1 for up, 0 for straight, 1 for down.
+	 */
+	public int sample(double[] activations) {
+		// Compute softmax probabilities with temperature scaling.
+		double[] probabilities = softmax(activations, temperature);
+
+		// Sample an index based on the computed probabilities.
+		int chosenIndex = sampleFromDistribution(probabilities);
+		int chosenMovement = movementForIndex(chosenIndex);
+
+		// Adjust temperature: if the same movement is repeated, increase temperature to encourage exploration.
+		if (chosenMovement == lastMovement) {
+			temperature = Math.min(maxTemperature, temperature + 0.1);
+		} else {
+			temperature = Math.max(minTemperature, temperature - 0.1);
+		}
+		lastMovement = chosenMovement;
+
+		//System.out.println("Chosen Movement: " + chosenMovement + " | Temperature: " + temperature);
+		return chosenMovement;
+	}
+
+	// Softmax function with temperature scaling.
+	private double[] softmax(double[] activations, double temperature) {
+		double[] expValues = new double[activations.length];
+		double sum = 0;
+		for (int i = 0; i < activations.length; i++) {
+			expValues[i] = Math.exp(activations[i] / temperature);
+			sum += expValues[i];
+		}
+		for (int i = 0; i < expValues.length; i++) {
+			expValues[i] /= sum;
+		}
+		return expValues;
+	}
+
+	// Sample an index from the probability distribution.
+	private int sampleFromDistribution(double[] probabilities) {
+		double rand = random != null ? random.nextDouble() : ThreadLocalRandom.current().nextDouble();
+		double cumulative = 0;
+		for (int i = 0; i < probabilities.length; i++) {
+			cumulative += probabilities[i];
+			if (rand < cumulative) {
+				return i;
+			}
+		}
+		// Fallback: return last index if rounding errors occur.
+		return probabilities.length - 1;
+	}
+
+	// Map the index to a movement: index 0 -> -1 (up), 1 -> 0 (straight), 2 -> 1 (down).
+	private int movementForIndex(int index) {
+		switch (index) {
+			case 0:
+				return -1;
+			case 1:
+				return 0;
+			case 2:
+			default:
+				return 1;
+		}
+	}
+}
@@ -0,0 +1,360 @@
+package ie.atu.sw.autopilot;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.encog.ml.data.basic.BasicMLDataSet;
+import org.encog.neural.networks.BasicNetwork;
+
+/**
+ * Shrinks a trained autopilot network after training, measured against a set
+ * of recorded states.
+ * <p>
+ * {@link #prune} removes hidden units whose output barely changes over the
+ * states, folding their mean activation into the output biases, and then zeroes
+ * the weights of dead inputs (inputs that are zero in every state, such as grid
+ * rows the cave never reaches) and weights that are small next to the largest
+ * in their layer. {@link #distill} instead trains a new, much smaller network
+ * to reproduce the teacher's outputs on the states.
+ * <p>
+ * Only removing hidden units and distilling make a model smaller or faster. An
+ * Encog network is stored and evaluated densely, so zeroed weights still take
+ * their place in the saved file and in every forward pass; they only make the
+ * network sparser. {@link PruneResult} therefore reports the stored weight count
+ * separately from the non-zero count.
+ * <p>
+ * Both keep the input size, so the result is a drop-in replacement that takes
+ * the same state vector and is saved and loaded like any other autopilot.
+ */
+public class NetworkCompressor {
+	public static final double DEFAULT_UNIT_THRESHOLD = 0.05;
+	public static final double DEFAULT_WEIGHT_THRESHOLD = 0.01;
+	public static final int DEFAULT_DISTILL_EPOCHS = 200;
+	private static final int OUTPUT_CHUNK = 1024;
+
+	private final double[][] states;
+
+	/**
+	 * The outcome of {@link #prune}. Weight counts include biases.
+	 *
+	 * @param weightsBefore  weights stored and evaluated by the original network
+	 * @param weightsAfter   weights stored and evaluated by the pruned network; only
+	 *                       removed hidden units lower this
+	 * @param nonZeroWeights weights of the pruned network that are not zero, which
+	 *                       measures sparsity, not size or speed
+	 */
+	public record PruneResult(BasicNetwork network, int hiddenBefore, int hiddenAfter, int deadInputs,
+			int weightsBefore, int weightsAfter, int nonZeroWeights) {
+
+		@Override
+		public String toString() {
+			return String.format("Hidden units: %d -> %d | Weights: %d -> %d (%.1f%%) | Dead inputs: %d"
+					+ " | Non-zero weights: %d (sparsity only, still stored densely)",
+					hiddenBefore, hiddenAfter, weightsBefore, weightsAfter, 100.0 * weightsAfter / weightsBefore,
+					deadInputs, nonZeroWeights);
+		}
+	}
+
+	/**
+	 * How closely a compressed network follows the original over the states.
+	 *
+	 * @param greedyAgreement   the fraction of states where both pick the same highest output
+	 * @param meanAbsoluteError the mean absolute difference between their output activations
+	 */
+	public record Agreement(int samples, double greedyAgreement, double meanAbsoluteError) {
+
+		@Override
+		public String toString() {
+			return String.format("Samples: %d | Greedy agreement: %.2f%% | Mean output error: %.4f",
+					samples, 100 * greedyAgreement, meanAbsoluteError);
+		}
+	}
+
+	/**
+	 * @param states recorded input vectors, e.g. from {@link TrainingDataBuffer#getFeaturesArray()};
+	 *               they decide which units and inputs are dead, so they should cover typical flights
+	 */
+	public NetworkCompressor(double[][] states) {
+		if (states.length == 0) {
+			throw new IllegalArgumentException("At least one state is needed to compress a network");
+		}
+		this.states = states;
+	}
+
+	/**
+	 * Prunes a copy of the teacher; the teacher is left unchanged.
+	 *
+	 * @param unitThreshold   hidden units whose output swing is below this fraction of the
+	 *                        largest unit's are removed; the largest is always kept
+	 * @param weightThreshold weights below this fraction of the largest weight in their
+	 *                        layer are zeroed
+	 */
+	public PruneResult prune(BasicNetwork teacher, double unitThreshold, double weightThreshold) {
+		if (unitThreshold < 0 || unitThreshold > 1 || weightThreshold < 0 || weightThreshold > 1) {
+			throw new IllegalArgumentException("Thresholds must be between 0 and 1");
+		}
+		Dense dense = Dense.of(teacher);
+
+		// A unit's importance is how far it can move the outputs: its activation spread times its outgoing weights.
+		double[] min = new double[dense.hidden];
+		double[] max = new double[dense.hidden];
+		double[] mean = new double[dense.hidden];
+		Arrays.fill(min, Double.MAX_VALUE);
+		Arrays.fill(max, -Double.MAX_VALUE);
+		for (double[] state : states) {
+			double[] h = dense.hidden(state);
+			for (int j = 0; j < dense.hidden; j++) {
+				min[j] = Math.min(min[j], h[j]);
+				max[j] = Math.max(max[j], h[j]);
+				mean[j] += h[j] / states.length;
+			}
+		}
+		double[] importance = new double[dense.hidden];
+		double maxImportance = 0;
+		for (int j = 0; j < dense.hidden; j++) {
+			double outgoing = 0;
+			for (int k = 0; k < dense.outputs; k++) {
+				outgoing += Math.abs(dense.w2[k][j]);
+			}
+			importance[j] = (max[j] - min[j]) * outgoing;
+			maxImportance = Math.max(maxImportance, importance[j]);
+		}
+
+		int kept = 0;
+		int[] keep = new int[dense.hidden];
+		for (int j = 0; j < dense.hidden; j++) {
+			if (importance[j] >= unitThreshold * maxImportance) {
+				keep[kept++] = j;
+			} else {
+				for (int k = 0; k < dense.outputs; k++) {
+					dense.b2[k] += dense.w2[k][j] * mean[j];
+				}
+			}
+		}
+		Dense pruned = dense.keepHidden(keep, kept);
+
+		int deadInputs = 0;
+		for (int i = 0; i < pruned.inputs; i++) {
+			if (isDead(i)) {
+				deadInputs++;
+				for (int j = 0; j < pruned.hidden; j++) {
+					pruned.w1[j][i] = 0;
+				}
+			}
+		}
+		zeroSmall(pruned.w1, weightThreshold);
+		zeroSmall(pruned.w2, weightThreshold);
+
+		return new PruneResult(pruned.toNetwork(), dense.hidden, pruned.hidden, deadInputs,
+				dense.weightCount(), pruned.weightCount(), pruned.nonZeroWeights());
+	}
+
+	/**
+	 * Trains a fresh network with the given hidden size to reproduce the teacher's
+	 * output activations on the states, using {@link MiniBatchTrainer}. The student
+	 * matches the activations themselves rather than probabilities at one temperature:
+	 * the autopilot softens them with its own temperature when it samples a move, so
+	 * matching them keeps the student's move distribution close at every temperature.
+	 *
+	 * @param seed seeds the student's initial weights and the batch shuffles, so a
+	 *             distillation can be repeated and compared across runs
+	 */
+	public BasicNetwork distill(BasicNetwork teacher, int studentHidden, int epochs, int batchSize,
+			double learningRate, long seed) {
+		double[][] targets = outputs(teacher);
+		BasicNetwork student = NeuralNetworkAutopilot.buildNetwork(teacher.getInputCount(), studentHidden);
+		student.reset((int) seed);
+		new MiniBatchTrainer(student, new BasicMLDataSet(states, targets), epochs, batchSize, learningRate,
+				0, Math.max(1, epochs / 10), new Random(seed)).train();
+		return student;
+	}
+
+	/**
+	 * Compares the outputs of a compressed network with the original's on every state.
+	 */
+	public Agreement compare(BasicNetwork original, BasicNetwork compressed) {
+		double[][] expected = outputs(original);
+		double[][] actual = outputs(compressed);
+		int agree = 0;
+		double error = 0;
+		for (int s = 0; s < states.length; s++) {
+			if (argmax(expected[s]) == argmax(actual[s])) {
+				agree++;
+			}
+			for (int k = 0; k < expected[s].length; k++) {
+				error += Math.abs(expected[s][k] - actual[s][k]);
+			}
+		}
+		return new Agreement(states.length, (double) agree / states.length,
+				error / (states.length * (double) expected[0].length));
+	}
+
+	/**
+	 * The number of weights and biases an autopilot network stores and evaluates
+	 * per decision, zero or not.
+	 */
+	public static int weightCount(BasicNetwork network) {
+		return Dense.of(network).weightCount();
+	}
+
+	// Output activations for every state, a chunk at a time to bound the batch scratch space.
+	private double[][] outputs(BasicNetwork network) {
+		BatchedNetwork batched = new BatchedNetwork(network);
+		double[][] outputs = new double[states.length][];
+		double[][] chunk = new double[OUTPUT_CHUNK][];
+		for (int start = 0; start < states.length; start += OUTPUT_CHUNK) {
+			int count = Math.min(OUTPUT_CHUNK, states.length - start);
+			System.arraycopy(states, start, chunk, 0, count);
+			System.arraycopy(batched.compute(chunk, count), 0, outputs, start, count);
+		}
+		return outputs;
+	}
+
+	private boolean isDead(int input) {
+		for (double[] state : states) {
+			if (state[input] != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void zeroSmall(double[][] layer, double threshold) {
+		double max = 0;
+		for (double[] row : layer) {
+			for (double w : row) {
+				max = Math.max(max, Math.abs(w));
+			}
+		}
+		for (double[] row : layer) {
+			for (int i = 0; i < row.length; i++) {
+				if (Math.abs(row[i]) < threshold * max) {
+					row[i] = 0;
+				}
+			}
+		}
+	}
+
+	private static int argmax(double[] values) {
+		int best = 0;
+		for (int i = 1; i < values.length; i++) {
+			if (values[i] > values[best]) {
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	// An editable copy of an input-sigmoid-linear network's weights, rows indexed by the receiving neuron.
+	private static final class Dense {
+		final int inputs;
+		final int hidden;
+		final int outputs;
+		final double[][] w1; // [hidden][input]
+		final double[] b1;
+		final double[][] w2; // [output][hidden]
+		final double[] b2;
+
+		Dense(int inputs, int hidden, int outputs) {
+			this.inputs = inputs;
+			this.hidden = hidden;
+			this.outputs = outputs;
+			w1 = new double[hidden][inputs];
+			b1 = new double[hidden];
+			w2 = new double[outputs][hidden];
+			b2 = new double[outputs];
+		}
+
+		static Dense of(BasicNetwork network) {
+			if (network.getLayerCount() != 3) {
+				throw new IllegalArgumentException("Expected an input, hidden and output layer, got "
+						+ network.getLayerCount() + " layers");
+			}
+			Dense dense = new Dense(network.getLayerNeuronCount(0), network.getLayerNeuronCount(1),
+					network.getLayerNeuronCount(2));
+			for (int j = 0; j < dense.hidden; j++) {
+				for (int i = 0; i < dense.inputs; i++) {
+					dense.w1[j][i] = network.getWeight(0, i, j);
+				}
+				dense.b1[j] = network.getWeight(0, dense.inputs, j);
+			}
+			for (int k = 0; k < dense.outputs; k++) {
+				for (int j = 0; j < dense.hidden; j++) {
+					dense.w2[k][j] = network.getWeight(1, j, k);
+				}
+				dense.b2[k] = network.getWeight(1, dense.hidden, k);
+			}
+			return dense;
+		}
+
+		BasicNetwork toNetwork() {
+			BasicNetwork network = NeuralNetworkAutopilot.buildNetwork(inputs, hidden);
+			for (int j = 0; j < hidden; j++) {
+				for (int i = 0; i < inputs; i++) {
+					network.setWeight(0, i, j, w1[j][i]);
+				}
+				network.setWeight(0, inputs, j, b1[j]);
+			}
+			for (int k = 0; k < outputs; k++) {
+				for (int j = 0; j < hidden; j++) {
+					network.setWeight(1, j, k, w2[k][j]);
+				}
+				network.setWeight(1, hidden, k, b2[k]);
+			}
+			return network;
+		}
+
+		// The first `count` hidden units listed in `keep`, with the same output biases.
+		Dense keepHidden(int[] keep, int count) {
+			Dense kept = new Dense(inputs, count, outputs);
+			for (int n = 0; n < count; n++) {
+				int j = keep[n];
+				kept.w1[n] = w1[j].clone();
+				kept.b1[n] = b1[j];
+				for (int k = 0; k < outputs; k++) {
+					kept.w2[k][n] = w2[k][j];
+				}
+			}
+			System.arraycopy(b2, 0, kept.b2, 0, outputs);
+			return kept;
+		}
+
+		double[] hidden(double[] state) {
+			double[] h = new double[hidden];
+			for (int j = 0; j < hidden; j++) {
+				double sum = b1[j];
+				double[] row = w1[j];
+				for (int i = 0; i < inputs; i++) {
+					sum += row[i] * state[i];
+				}
+				h[j] = 1.0 / (1.0 + Math.exp(-sum));
+			}
+			return h;
+		}
+
+		int weightCount() {
+			return hidden * (inputs + 1) + outputs * (hidden + 1);
+		}
+
+		int nonZeroWeights() {
+			int count = 0;
+			for (double[] row : w1) {
+				count += nonZero(row);
+			}
+			for (double[] row : w2) {
+				count += nonZero(row);
+			}
+			return count + nonZero(b1) + nonZero(b2);
+		}
+
+		private static int nonZero(double[] values) {
+			int count = 0;
+			for (double value : values) {
+				if (value != 0) {
+					count++;
+				}
+			}
+			return count;
+		}
+	}
+}
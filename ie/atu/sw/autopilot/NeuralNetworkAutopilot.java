@@ -8,8 +8,10 @@ import org.encog.ml.data.basic.BasicMLData;
 import org.encog.ml.data.basic.BasicMLDataSet;
 import org.encog.neural.networks.BasicNetwork;
 import org.encog.neural.networks.layers.BasicLayer;
+import org.encog.persist.EncogDirectoryPersistence;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -17,128 +19,373 @@ import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 public class NeuralNetworkAutopilot implements IAutopilotController {
-	private BasicNetwork network;
-	private int lastMovement = Integer.MIN_VALUE;
-	private double temperature = 1.0;
-	private final double minTemperature = 0.5;
-	private final double maxTemperature = 2.0;
+	private final BasicNetwork network;
+	private final MovementSampler sampler;
+	public static final double DEFAULT_MIN_TEMPERATURE = 0.5;
+	public static final double DEFAULT_MAX_TEMPERATURE = 2.0;
+
+	// Every HOLD_OUT_STRIDE-th sample is kept back to check the int8 model against the float one.
+	private static final int HOLD_OUT_STRIDE = 10;
+	/**
+	 * Trailing scalar features after the horizon cells: lastMovement, row, terminal, good.
+	 * {@code GridConfig} derives the input layout from this.
+	 */
+	public static final int SCALAR_FEATURES = 4;
+	private static final int MAX_DEFAULT_HIDDEN_SIZE = 256;
+	private final InferenceMode mode;
+	private QuantizedNetwork quantized;
+	private BatchedNetwork batched; // built on first use by computeBatch
+	private final DecisionCache decisionCache; // null when caching is disabled
+	private int trainingThreads = 0;     // 0 lets Encog use every core
+	private int trainingLogInterval = 1; // epochs between progress lines, 0 for none
+	private int miniBatchSize = 0;       // 0 trains with full-batch RPROP
+	private double learningRate = MiniBatchTrainer.DEFAULT_LEARNING_RATE;
+	private long shuffleSeed = new Random().nextLong(); // mini-batch order, fixed per autopilot
 
 	public NeuralNetworkAutopilot(int inputSize) {
-	    network = new BasicNetwork();
+	    this(inputSize, InferenceMode.DOUBLE);
+	}
+
+	public NeuralNetworkAutopilot(int inputSize, InferenceMode mode) {
+	    this(inputSize, mode, 0);
+	}
+
+	/**
+	 * @param cacheCapacity the number of states kept in the decision cache, or 0 to disable it
+	 */
+	public NeuralNetworkAutopilot(int inputSize, InferenceMode mode, int cacheCapacity) {
+	    this(inputSize, defaultHiddenSize(inputSize), DEFAULT_MIN_TEMPERATURE, DEFAULT_MAX_TEMPERATURE, mode, cacheCapacity);
+	}
+
+	/**
+	 * @param hiddenSize     the number of sigmoid units in the hidden layer
+	 * @param minTemperature the lower bound of the softmax sampling temperature
+	 * @param maxTemperature the upper bound of the softmax sampling temperature
+	 * @param cacheCapacity  the number of states kept in the decision cache, or 0 to disable it
+	 */
+	public NeuralNetworkAutopilot(int inputSize, int hiddenSize, double minTemperature, double maxTemperature,
+	        InferenceMode mode, int cacheCapacity) {
+	    this(buildNetwork(inputSize, hiddenSize), minTemperature, maxTemperature, mode, cacheCapacity);
+	}
+
+	/**
+	 * Wraps an existing network, for example one loaded with {@link #load(String, InferenceMode, int)}.
+	 * The network must have the input-sigmoid-linear topology built by the other constructors.
+	 */
+	public NeuralNetworkAutopilot(BasicNetwork network, double minTemperature, double maxTemperature,
+	        InferenceMode mode, int cacheCapacity) {
+	    int inputSize = network.getInputCount();
+	    this.network = network;
+	    this.sampler = new MovementSampler(minTemperature, maxTemperature);
+	    this.mode = mode;
+	    this.decisionCache = cacheCapacity > 0
+	            ? new DecisionCache(inputSize - SCALAR_FEATURES, SCALAR_FEATURES, cacheCapacity)
+	            : null;
+	    if (mode == InferenceMode.INT8) {
+	        quantized = new QuantizedNetwork(network);
+	    }
+	}
+
+	static BasicNetwork buildNetwork(int inputSize, int hiddenSize) {
+	    BasicNetwork network = new BasicNetwork();
 	    network.addLayer(new BasicLayer(null, true, inputSize));
-	    int hiddenSize = Math.max(1, inputSize / 2);
 	    network.addLayer(new BasicLayer(new ActivationSigmoid(), true, hiddenSize));
 	    network.addLayer(new BasicLayer(new ActivationLinear(), false, 3));
 	    network.getStructure().finalizeStructure();
 	    network.reset();
+	    return network;
 	}
 
-	@Override
-	public int getMovement(double[] state) {
-	    MLData inputData = new BasicMLData(state);
-	    MLData output = network.compute(inputData);
-	    double[] activations = output.getData();
+	/**
+	 * Loads a network saved with {@link #save(String)}, using the default temperature bounds.
+	 */
+	public static NeuralNetworkAutopilot load(String filePath, InferenceMode mode, int cacheCapacity) {
+	    BasicNetwork network = (BasicNetwork) EncogDirectoryPersistence.loadObject(new File(filePath));
+	    return new NeuralNetworkAutopilot(network, DEFAULT_MIN_TEMPERATURE, DEFAULT_MAX_TEMPERATURE, mode, cacheCapacity);
+	}
 
-	    // Compute softmax probabilities with temperature scaling.
-	    double[] probabilities = softmax(activations, temperature);
+	/**
+	 * Saves the network topology and weights in Encog's EG format.
+	 */
+	public void save(String filePath) {
+	    EncogDirectoryPersistence.saveObject(new File(filePath), network);
+	}
 
-	    // Sample an index based on the computed probabilities.
-	    int chosenIndex = sampleFromDistribution(probabilities);
-	    int chosenMovement = movementForIndex(chosenIndex);
+	/**
+	 * Returns a copy of every weight and bias, in Encog's flat encoding.
+	 */
+	public double[] getWeights() {
+	    double[] weights = new double[network.encodedArrayLength()];
+	    network.encodeToArray(weights);
+	    return weights;
+	}
 
-	    // Adjust temperature: if the same movement is repeated, increase temperature to encourage exploration.
-	    if (chosenMovement == lastMovement) {
-	        temperature = Math.min(maxTemperature, temperature + 0.1);
-	    } else {
-	        temperature = Math.max(minTemperature, temperature - 0.1);
+	/**
+	 * Replaces every weight and bias with values previously returned by
+	 * {@link #getWeights()} from an autopilot of the same topology.
+	 */
+	public void setWeights(double[] weights) {
+	    if (weights.length != network.encodedArrayLength()) {
+	        throw new IllegalArgumentException("Expected " + network.encodedArrayLength() + " weights, got " + weights.length);
 	    }
-	    lastMovement = chosenMovement;
-
-	    //System.out.println("Chosen Movement: " + chosenMovement + " | Temperature: " + temperature);
-	    return chosenMovement;
+	    network.decodeFromArray(weights);
+	    weightsChanged();
 	}
 
-	// Softmax function with temperature scaling.
-	private double[] softmax(double[] activations, double temperature) {
-	    double[] expValues = new double[activations.length];
-	    double sum = 0;
-	    for (int i = 0; i < activations.length; i++) {
-	        expValues[i] = Math.exp(activations[i] / temperature);
-	        sum += expValues[i];
+	// Rebuilds everything derived from the float weights.
+	private void weightsChanged() {
+	    batched = null;
+	    if (mode == InferenceMode.INT8) {
+	        quantized = new QuantizedNetwork(network);
 	    }
-	    for (int i = 0; i < expValues.length; i++) {
-	        expValues[i] /= sum;
+	    if (decisionCache != null) {
+	        decisionCache.invalidate();
 	    }
-	    return expValues;
 	}
 
-	// Sample an index from the probability distribution.
-	private int sampleFromDistribution(double[] probabilities) {
-	    double rand = Math.random();
-	    double cumulative = 0;
-	    for (int i = 0; i < probabilities.length; i++) {
-	        cumulative += probabilities[i];
-	        if (rand < cumulative) {
-	            return i;
+	/**
+	 * Half the input size, capped so that large grids do not grow the hidden
+	 * layer (and the weight count) quadratically. The default 30x20 grid is
+	 * below the cap and keeps its 142 hidden units.
+	 */
+	public static int defaultHiddenSize(int inputSize) {
+	    return Math.max(1, Math.min(inputSize / 2, MAX_DEFAULT_HIDDEN_SIZE));
+	}
+
+	/**
+	 * Controls how {@link #trainNetwork(List, int)} runs RPROP or mini-batch training.
+	 *
+	 * @param threads     the number of worker threads, or 0 to use every core
+	 * @param logInterval print progress every this many epochs, or 0 to stay quiet
+	 */
+	public void setTrainingOptions(int threads, int logInterval) {
+	    this.trainingThreads = threads;
+	    this.trainingLogInterval = logInterval;
+	}
+
+	/**
+	 * Switches training from full-batch RPROP to {@link MiniBatchTrainer}. An epoch
+	 * is still one pass over the data, but it makes one weight update per batch, so
+	 * far fewer epochs are needed.
+	 *
+	 * @param batchSize    samples per weight update, or 0 to go back to RPROP
+	 * @param learningRate the Adam step size
+	 */
+	public void setMiniBatchTraining(int batchSize, double learningRate) {
+	    setMiniBatchTraining(batchSize, learningRate, shuffleSeed);
+	}
+
+	/**
+	 * As {@link #setMiniBatchTraining(int, double)}, with the seed for the batch
+	 * shuffles, so that training from the same starting weights on the same data
+	 * repeats exactly.
+	 */
+	public void setMiniBatchTraining(int batchSize, double learningRate, long seed) {
+	    this.miniBatchSize = batchSize;
+	    this.learningRate = learningRate;
+	    this.shuffleSeed = seed;
+	}
+
+	@Override
+	public int getMovement(double[] state) {
+	    double[] activations = decisionCache != null
+	            ? decisionCache.getOrCompute(state, this::computeActivations)
+	            : computeActivations(state);
+
+	    return sampler.sample(activations);
+	}
+
+	@Override
+	public void startFlight(long seed) {
+	    sampler.startFlight(seed);
+	}
+
+	/**
+	 * The movement with the highest output activation, without temperature
+	 * sampling or the decision cache, so repeated calls on the same state always
+	 * agree and leave the sampler untouched. Used to score a model offline.
+	 */
+	public int getGreedyMovement(double[] state) {
+	    return argmax(computeActivations(state)) - 1;
+	}
+
+	/**
+	 * Computes the raw output activations (up, straight, down) for the first
+	 * {@code count} states in one pass, without sampling a movement. Used to
+	 * serve many clients from one model; the caller applies its own
+	 * {@link MovementSampler}. Not thread safe.
+	 */
+	public double[][] computeBatch(double[][] states, int count) {
+	    if (quantized != null) {
+	        double[][] result = new double[count][];
+	        for (int b = 0; b < count; b++) {
+	            result[b] = quantized.compute(states[b]).clone();
 	        }
+	        return result;
+	    }
+	    if (batched == null) {
+	        batched = new BatchedNetwork(network);
 	    }
-	    // Fallback: return last index if rounding errors occur.
-	    return probabilities.length - 1;
+	    return batched.compute(states, count);
+	}
+
+	public int getInputSize() {
+	    return network.getInputCount();
 	}
 
-	// Map the index to a movement: index 0 -> -1 (up), 1 -> 0 (straight), 2 -> 1 (down).
-	private int movementForIndex(int index) {
-	    switch (index) {
-	        case 0:
-	            return -1;
-	        case 1:
-	            return 0;
-	        case 2:
-	        default:
-	            return 1;
+	// Raw output activations from whichever forward pass the inference mode selects.
+	private double[] computeActivations(double[] state) {
+	    if (quantized != null) {
+	        return quantized.compute(state);
 	    }
+	    MLData output = network.compute(new BasicMLData(state));
+	    return output.getData();
 	}
 
 	@Override
 	public void trainNetwork(List<TrainingSample> trainingData, int epochs) {
-	    int sampleCount = trainingData.size();
+	    // In int8 mode keep a held-out slice back so the quantized model can be checked against the float one.
+	    List<TrainingSample> trainingSamples = trainingData;
+	    List<TrainingSample> heldOut = new ArrayList<>();
+	    if (mode == InferenceMode.INT8 && trainingData.size() >= HOLD_OUT_STRIDE) {
+	        trainingSamples = new ArrayList<>();
+	        for (int i = 0; i < trainingData.size(); i++) {
+	            if (i % HOLD_OUT_STRIDE == HOLD_OUT_STRIDE - 1) {
+	                heldOut.add(trainingData.get(i));
+	            } else {
+	                trainingSamples.add(trainingData.get(i));
+	            }
+	        }
+	    }
+
+	    int sampleCount = trainingSamples.size();
 	    double[][] input = new double[sampleCount][];
 	    double[][] ideal = new double[sampleCount][3]; // 3 output neurons: up, neutral, down
 
 	    for (int i = 0; i < sampleCount; i++) {
-	        TrainingSample sample = trainingData.get(i);
-	        double[] features = sample.getFeatures();
-	        input[i] = features;
-
-	        // Determine if this sample represents a terminal state.
-	        boolean terminal = features[features.length - 1] > 0.5;
-	        int outputIndex;
-	        if (terminal) {
-	            // Label terminal states as neutral action.
-	            outputIndex = 1;
-	        } else {
-	            // Otherwise, determine label based on the sample's label.
-	            int label = (int) sample.getLabel();
-	            if (label == -1) {
-	                outputIndex = 0; // up
-	            } else if (label == 1) {
-	                outputIndex = 2; // down
-	            } else {
-	                outputIndex = 1; // no movement (neutral)
-	            }
-	        }
+	        TrainingSample sample = trainingSamples.get(i);
+	        input[i] = sample.getFeatures();
 
 	        // Create a one-hot encoded vector.
 	        ideal[i] = new double[3];
-	        ideal[i][outputIndex] = 1;
+	        ideal[i][outputIndexFor(sample)] = 1;
+	    }
+
+	    train(new BasicMLDataSet(input, ideal), epochs, heldOut);
+	}
+
+	/**
+	 * Trains directly on the buffer's arrays through {@link TrainingDataBuffer#asDataSet},
+	 * without building samples or one-hot copies. In int8 mode this falls back to
+	 * {@link #trainNetwork(List, int)}, which needs its own held-out split.
+	 */
+	@Override
+	public void trainNetwork(TrainingDataBuffer buffer, int epochs) {
+	    if (mode == InferenceMode.INT8) {
+	        trainNetwork(buffer.toTrainingSamples(), epochs);
+	        return;
+	    }
+	    train(buffer.asDataSet(NeuralNetworkAutopilot::isTerminal), epochs, List.of());
+	}
+
+	/**
+	 * Trains on a column stream through {@link ColumnStreamBuffer#asDataSet}, which
+	 * builds each feature vector only when a batch asks for it. In int8 mode this
+	 * falls back to {@link #trainNetwork(List, int)} like the buffer overload.
+	 */
+	public void trainNetwork(ColumnStreamBuffer stream, int epochs) {
+	    if (mode == InferenceMode.INT8) {
+	        trainNetwork(stream.toTrainingDataBuffer().toTrainingSamples(), epochs);
+	        return;
+	    }
+	    train(stream.asDataSet(NeuralNetworkAutopilot::isTerminal), epochs, List.of());
+	}
+
+	private void train(MLDataSet trainingSet, int epochs, List<TrainingSample> heldOut) {
+	    if (miniBatchSize > 0) {
+	        if (trainingLogInterval > 0) {
+	            System.out.println("Mini-batch shuffle seed: " + shuffleSeed);
+	        }
+	        new MiniBatchTrainer(network, trainingSet, epochs, miniBatchSize, learningRate,
+	                trainingThreads, trainingLogInterval, new Random(shuffleSeed)).train();
+	    } else {
+	        new Trainer(network, trainingSet, epochs, trainingThreads, trainingLogInterval).train();
+	    }
+	    if (trainingLogInterval > 0) {
+	        System.out.println("Final Weights: " + Arrays.toString(network.getFlat().getWeights()));
+	    }
+
+	    // Cached activations belong to the old weights.
+	    if (decisionCache != null) {
+	        System.out.printf("Decision cache: hit rate %.2f%% (%d hits, %d misses) | Invalidating %d entries%n",
+	                100 * decisionCache.getHitRate(), decisionCache.getHits(), decisionCache.getMisses(), decisionCache.size());
+	    }
+	    weightsChanged();
+	    if (mode == InferenceMode.INT8) {
+	        reportQuantization(heldOut);
+	    }
+	}
+
+	/**
+	 * The decision cache hit rate since construction, or 0 when caching is disabled.
+	 */
+	public double getCacheHitRate() {
+	    return decisionCache != null ? decisionCache.getHitRate() : 0.0;
+	}
+
+	// The output neuron a sample is trained towards: 0 = up, 1 = neutral, 2 = down.
+	private static int outputIndexFor(TrainingSample sample) {
+	    // Label terminal states as neutral action.
+	    if (isTerminal(sample.getFeatures())) {
+	        return 1;
 	    }
+	    // Otherwise, determine label based on the sample's label.
+	    int label = (int) sample.getLabel();
+	    if (label == -1) {
+	        return 0; // up
+	    } else if (label == 1) {
+	        return 2; // down
+	    }
+	    return 1; // no movement (neutral)
+	}
+
+	private static boolean isTerminal(double[] features) {
+	    return features[features.length - 1] > 0.5;
+	}
+
+	// Compares the greedy decisions of the int8 and float models on samples that were not trained on.
+	private void reportQuantization(List<TrainingSample> heldOut) {
+	    if (heldOut.isEmpty()) {
+	        System.out.println("Int8 model: too few samples for a held-out comparison");
+	        return;
+	    }
+	    int agree = 0;
+	    int floatCorrect = 0;
+	    int int8Correct = 0;
+	    for (TrainingSample sample : heldOut) {
+	        int expected = outputIndexFor(sample);
+	        int floatChoice = argmax(network.compute(new BasicMLData(sample.getFeatures())).getData());
+	        int int8Choice = argmax(quantized.compute(sample.getFeatures()));
+	        if (floatChoice == int8Choice) agree++;
+	        if (floatChoice == expected) floatCorrect++;
+	        if (int8Choice == expected) int8Correct++;
+	    }
+	    double n = heldOut.size();
+	    System.out.printf("Int8 model (%d weight bytes) on %d held-out samples | Agreement: %.2f%% | Float accuracy: %.2f%% | Int8 accuracy: %.2f%%%n",
+	            quantized.getWeightBytes(), heldOut.size(), 100 * agree / n, 100 * floatCorrect / n, 100 * int8Correct / n);
+	}
 
-	    MLDataSet trainingSet = new BasicMLDataSet(input, ideal);
-	    Trainer trainer = new Trainer(network, trainingSet, epochs);
-	    trainer.train();
-	    System.out.println("Final Weights: " + Arrays.toString(network.getFlat().getWeights()));
+	private static int argmax(double[] values) {
+	    int best = 0;
+	    for (int i = 1; i < values.length; i++) {
+	        if (values[i] > values[best]) {
+	            best = i;
+	        }
+	    }
+	    return best;
 	}
 
 	public static void saveTrainingSamplesToCSV(String filePath, List<TrainingSample> samples, int featureCount) {
@@ -0,0 +1,201 @@
+package ie.atu.sw.autopilot;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Evolves the weights of a fixed autopilot topology directly against a
+ * fitness score, as an alternative to the supervised RPROP in {@link Trainer}.
+ * <p>
+ * Each generation keeps the best individuals unchanged (elitism) and breeds
+ * the rest by tournament selection, uniform crossover and Gaussian mutation.
+ * Elites keep the fitness they were scored with, so only new individuals are
+ * evaluated; this relies on the fitness being deterministic for a genome. Fitness evaluations are independent, so they run in parallel on a
+ * pool with one thread per core; each worker thread loads genomes into its own
+ * autopilot instance.
+ */
+public class NeuroevolutionTrainer {
+	private final Supplier<NeuralNetworkAutopilot> factory;
+	private final ToDoubleFunction<NeuralNetworkAutopilot> fitness;
+	private final int populationSize;
+	private final int eliteCount;
+	private final int tournamentSize;
+	private final double mutationRate;
+	private final double mutationStrength;
+	private final Random random;
+	private final List<GenerationStats> history = new ArrayList<>();
+
+	/**
+	 * Per-generation metrics.
+	 *
+	 * @param evaluationsPerSecond fitness evaluations completed per wall-clock second
+	 */
+	public record GenerationStats(int generation, double bestFitness, double meanFitness, long millis,
+			double evaluationsPerSecond) {
+	}
+
+	private record Individual(double[] genome, double fitness) {
+	}
+
+	/**
+	 * @param factory          creates an autopilot of the topology being evolved; called once per
+	 *                         random initial genome and once per worker thread
+	 * @param fitness          scores an autopilot, for example its mean flight score over seeded caves.
+	 *                         It must give the same score for the same weights, as seeded
+	 *                         {@code FlightSimulator} flights do, since elites are not
+	 *                         re-scored. Called concurrently, so it must be thread safe
+	 * @param populationSize   the number of individuals per generation
+	 * @param eliteCount       the number of best individuals copied unchanged into the next generation
+	 * @param mutationRate     the probability that each weight is perturbed
+	 * @param mutationStrength the standard deviation of the Gaussian perturbation
+	 * @param seed             seeds selection, crossover and mutation
+	 */
+	public NeuroevolutionTrainer(Supplier<NeuralNetworkAutopilot> factory,
+			ToDoubleFunction<NeuralNetworkAutopilot> fitness, int populationSize, int eliteCount,
+			double mutationRate, double mutationStrength, long seed) {
+		if (populationSize < 2 || eliteCount < 0 || eliteCount >= populationSize) {
+			throw new IllegalArgumentException("Invalid population: " + populationSize + " with " + eliteCount + " elites");
+		}
+		this.factory = factory;
+		this.fitness = fitness;
+		this.populationSize = populationSize;
+		this.eliteCount = eliteCount;
+		this.tournamentSize = 3;
+		this.mutationRate = mutationRate;
+		this.mutationStrength = mutationStrength;
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * Runs the given number of generations starting from freshly initialised networks.
+	 *
+	 * @return the weights of the fittest individual seen
+	 */
+	public double[] evolve(int generations) throws InterruptedException {
+		return evolve(generations, null);
+	}
+
+	/**
+	 * Runs the given number of generations.
+	 *
+	 * @param initial weights to seed the population with, for example from a
+	 *                supervised training run, or null to start from random networks
+	 * @return the weights of the fittest individual seen
+	 */
+	public double[] evolve(int generations, double[] initial) throws InterruptedException {
+		if (generations < 1) {
+			throw new IllegalArgumentException("At least one generation is needed: " + generations);
+		}
+		List<double[]> genomes = new ArrayList<>(populationSize);
+		for (int i = 0; i < populationSize; i++) {
+			if (initial == null) {
+				genomes.add(factory.get().getWeights());
+			} else {
+				genomes.add(i == 0 ? initial.clone() : mutate(initial.clone()));
+			}
+		}
+
+		Individual best = null;
+		List<Individual> elites = List.of();
+		ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		ThreadLocal<NeuralNetworkAutopilot> autopilots = ThreadLocal.withInitial(factory);
+		try {
+			for (int generation = 1; generation <= generations; generation++) {
+				long startTime = System.currentTimeMillis();
+				List<Individual> population = new ArrayList<>(elites);
+				population.addAll(evaluate(genomes, pool, autopilots));
+				long millis = System.currentTimeMillis() - startTime;
+
+				population.sort(Comparator.comparingDouble(Individual::fitness).reversed());
+				if (best == null || population.get(0).fitness() > best.fitness()) {
+					best = population.get(0);
+				}
+
+				double mean = population.stream().mapToDouble(Individual::fitness).average().orElse(0);
+				GenerationStats stats = new GenerationStats(generation, population.get(0).fitness(), mean, millis,
+						genomes.size() * 1000.0 / Math.max(1, millis));
+				history.add(stats);
+				System.out.printf("Generation %d | Best: %.1f | Mean: %.1f | Time: %d ms | %.1f evaluations/s%n",
+						generation, stats.bestFitness(), stats.meanFitness(), millis, stats.evaluationsPerSecond());
+
+				elites = population.subList(0, eliteCount);
+				genomes = breed(population);
+			}
+		} finally {
+			pool.shutdown();
+		}
+		System.out.printf("Evolution complete. Best fitness: %.1f%n", best.fitness());
+		return best.genome().clone();
+	}
+
+	/**
+	 * The metrics of every generation run so far.
+	 */
+	public List<GenerationStats> getHistory() {
+		return List.copyOf(history);
+	}
+
+	private List<Individual> evaluate(List<double[]> genomes, ExecutorService pool,
+			ThreadLocal<NeuralNetworkAutopilot> autopilots) throws InterruptedException {
+		List<Future<Individual>> futures = new ArrayList<>(genomes.size());
+		for (double[] genome : genomes) {
+			futures.add(pool.submit(() -> {
+				NeuralNetworkAutopilot autopilot = autopilots.get();
+				autopilot.setWeights(genome);
+				return new Individual(genome, fitness.applyAsDouble(autopilot));
+			}));
+		}
+		List<Individual> population = new ArrayList<>(genomes.size());
+		try {
+			for (Future<Individual> future : futures) {
+				population.add(future.get());
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Fitness evaluation failed", e.getCause());
+		}
+		return population;
+	}
+
+	// The genomes that fill the next generation after the elites: mutated crossovers of two tournament winners.
+	private List<double[]> breed(List<Individual> ranked) {
+		List<double[]> next = new ArrayList<>(populationSize - eliteCount);
+		while (next.size() < populationSize - eliteCount) {
+			double[] a = select(ranked).genome();
+			double[] b = select(ranked).genome();
+			double[] child = new double[a.length];
+			for (int i = 0; i < child.length; i++) {
+				child[i] = random.nextBoolean() ? a[i] : b[i];
+			}
+			next.add(mutate(child));
+		}
+		return next;
+	}
+
+	private Individual select(List<Individual> population) {
+		Individual winner = population.get(random.nextInt(population.size()));
+		for (int i = 1; i < tournamentSize; i++) {
+			Individual challenger = population.get(random.nextInt(population.size()));
+			if (challenger.fitness() > winner.fitness()) {
+				winner = challenger;
+			}
+		}
+		return winner;
+	}
+
+	private double[] mutate(double[] genome) {
+		for (int i = 0; i < genome.length; i++) {
+			if (random.nextDouble() < mutationRate) {
+				genome[i] += random.nextGaussian() * mutationStrength;
+			}
+		}
+		return genome;
+	}
+}
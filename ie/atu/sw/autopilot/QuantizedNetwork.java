@@ -0,0 +1,160 @@
+package ie.atu.sw.autopilot;
+
+import org.encog.engine.network.activation.ActivationLinear;
+import org.encog.engine.network.activation.ActivationSigmoid;
+import org.encog.neural.networks.BasicNetwork;
+
+/**
+ * An int8 snapshot of a trained feed-forward {@link BasicNetwork}.
+ * <p>
+ * Each layer's weights are quantized symmetrically with a single per-layer
+ * scale, inputs and hidden activations are carried as int8 in [-1, 1], and the
+ * matrix-vector products accumulate in int32. Sigmoid hidden layers are
+ * evaluated through a lookup table so the only floating-point work left is one
+ * rescale per neuron.
+ * <p>
+ * The snapshot is immutable with respect to its weights but keeps scratch
+ * buffers, so a single instance must not be shared between threads.
+ */
+public class QuantizedNetwork {
+	private static final int ACTIVATION_LEVELS = 127; // int8 steps for a value of 1.0
+	private static final double SIGMOID_RANGE = 8.0;  // sigmoid is saturated outside [-8, 8]
+	private static final int SIGMOID_TABLE_SIZE = 4096;
+	private static final double SIGMOID_TABLE_STEP = SIGMOID_TABLE_SIZE / (2 * SIGMOID_RANGE);
+	private static final byte[] SIGMOID_TABLE = buildSigmoidTable();
+
+	private final int[] layerSizes;      // neuron counts, input layer first, bias excluded
+	private final byte[][] weights;      // per layer transition, row-major [to][from]
+	private final int[][] biases;        // per layer transition, in accumulator units
+	private final double[] scales;       // accumulator -> real value, per layer transition
+	private final byte[][] activations;  // scratch: quantized outputs of every layer but the last
+	private final double[] output;
+
+	/**
+	 * Quantizes the current weights of the given network. Every hidden layer
+	 * must use a sigmoid activation and the output layer a linear one, which is
+	 * the topology built by {@link NeuralNetworkAutopilot}.
+	 */
+	public QuantizedNetwork(BasicNetwork network) {
+		int layerCount = network.getLayerCount();
+		layerSizes = new int[layerCount];
+		for (int l = 0; l < layerCount; l++) {
+			layerSizes[l] = network.getLayerNeuronCount(l);
+		}
+		for (int l = 1; l < layerCount - 1; l++) {
+			if (!(network.getActivation(l) instanceof ActivationSigmoid)) {
+				throw new IllegalArgumentException("Hidden layer " + l + " must use a sigmoid activation");
+			}
+		}
+		if (!(network.getActivation(layerCount - 1) instanceof ActivationLinear)) {
+			throw new IllegalArgumentException("Output layer must use a linear activation");
+		}
+
+		weights = new byte[layerCount - 1][];
+		biases = new int[layerCount - 1][];
+		scales = new double[layerCount - 1];
+		activations = new byte[layerCount - 1][];
+		output = new double[layerSizes[layerCount - 1]];
+
+		for (int l = 0; l < layerCount - 1; l++) {
+			int from = layerSizes[l];
+			int to = layerSizes[l + 1];
+			boolean biased = network.isLayerBiased(l);
+
+			// Symmetric per-layer scale taken from the largest weight magnitude.
+			double maxAbs = 0;
+			for (int j = 0; j < to; j++) {
+				for (int i = 0; i < from; i++) {
+					maxAbs = Math.max(maxAbs, Math.abs(network.getWeight(l, i, j)));
+				}
+			}
+			double weightScale = maxAbs == 0 ? 1.0 : maxAbs / 127.0;
+			scales[l] = weightScale / ACTIVATION_LEVELS;
+
+			byte[] w = new byte[to * from];
+			int[] b = new int[to];
+			for (int j = 0; j < to; j++) {
+				for (int i = 0; i < from; i++) {
+					w[j * from + i] = (byte) Math.round(network.getWeight(l, i, j) / weightScale);
+				}
+				if (biased) {
+					b[j] = (int) Math.round(network.getWeight(l, from, j) / scales[l]);
+				}
+			}
+			weights[l] = w;
+			biases[l] = b;
+			activations[l] = new byte[from];
+		}
+	}
+
+	/**
+	 * Runs the integer forward pass. Only the first {@code getInputCount()}
+	 * entries of {@code state} are read; values are clamped to [-1, 1].
+	 *
+	 * @return the output layer activations. The array is reused by the next call.
+	 */
+	public double[] compute(double[] state) {
+		byte[] input = activations[0];
+		for (int i = 0; i < input.length; i++) {
+			double x = Math.max(-1.0, Math.min(1.0, state[i]));
+			input[i] = (byte) Math.round(x * ACTIVATION_LEVELS);
+		}
+
+		int last = weights.length - 1;
+		for (int l = 0; l <= last; l++) {
+			byte[] in = activations[l];
+			byte[] w = weights[l];
+			int[] b = biases[l];
+			int from = in.length;
+			for (int j = 0; j < b.length; j++) {
+				int acc = b[j];
+				int row = j * from;
+				for (int i = 0; i < from; i++) {
+					acc += w[row + i] * in[i];
+				}
+				if (l == last) {
+					output[j] = acc * scales[l];
+				} else {
+					activations[l + 1][j] = sigmoid(acc * scales[l]);
+				}
+			}
+		}
+		return output;
+	}
+
+	public int getInputCount() {
+		return layerSizes[0];
+	}
+
+	/**
+	 * The number of bytes taken by the quantized weights and biases.
+	 */
+	public long getWeightBytes() {
+		long bytes = 0;
+		for (int l = 0; l < weights.length; l++) {
+			bytes += weights[l].length + 4L * biases[l].length;
+		}
+		return bytes;
+	}
+
+	// Table lookup of the sigmoid, returned as an int8 activation in [0, 127].
+	private static byte sigmoid(double z) {
+		int index = (int) ((z + SIGMOID_RANGE) * SIGMOID_TABLE_STEP);
+		if (index < 0) {
+			index = 0;
+		} else if (index >= SIGMOID_TABLE_SIZE) {
+			index = SIGMOID_TABLE_SIZE - 1;
+		}
+		return SIGMOID_TABLE[index];
+	}
+
+	private static byte[] buildSigmoidTable() {
+		byte[] table = new byte[SIGMOID_TABLE_SIZE];
+		for (int i = 0; i < SIGMOID_TABLE_SIZE; i++) {
+			// Sample each bucket at its midpoint.
+			double z = (i + 0.5) / SIGMOID_TABLE_STEP - SIGMOID_RANGE;
+			table[i] = (byte) Math.round(ACTIVATION_LEVELS / (1.0 + Math.exp(-z)));
+		}
+		return table;
+	}
+}
@@ -0,0 +1,27 @@
+package ie.atu.sw.autopilot;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Flies by picking up, straight or down uniformly at random, the same way
+ * {@code GameView} moves when no autopilot is attached. Useful as a seeded
+ * baseline and for generating exploratory training flights.
+ */
+public class RandomAutopilot implements IAutopilotController {
+	private final Random random;
+
+	public RandomAutopilot(long seed) {
+		this.random = new Random(seed);
+	}
+
+	@Override
+	public int getMovement(double[] state) {
+		return random.nextInt(3) - 1;
+	}
+
+	@Override
+	public void trainNetwork(List<TrainingSample> trainingData, int epochs) {
+		// Nothing to learn.
+	}
+}
@@ -0,0 +1,93 @@
+package ie.atu.sw.autopilot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.List;
+
+/**
+ * An autopilot whose network lives in an {@link InferenceServer}. Each
+ * decision sends the state over a loopback socket and samples a movement
+ * locally from the returned activations, so the temperature behaves exactly
+ * as in {@link NeuralNetworkAutopilot}.
+ */
+public class RemoteAutopilot implements IAutopilotController, AutoCloseable {
+	private final Socket socket;
+	private final DataInputStream in;
+	private final DataOutputStream out;
+	private final MovementSampler sampler;
+
+	public RemoteAutopilot(int port) throws IOException {
+		this(port, NeuralNetworkAutopilot.DEFAULT_MIN_TEMPERATURE, NeuralNetworkAutopilot.DEFAULT_MAX_TEMPERATURE);
+	}
+
+	public RemoteAutopilot(int port, double minTemperature, double maxTemperature) throws IOException {
+		this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		this.socket.setTcpNoDelay(true);
+		this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		this.sampler = new MovementSampler(minTemperature, maxTemperature);
+	}
+
+	@Override
+	public int getMovement(double[] state) {
+		try {
+			out.writeInt(InferenceServer.OP_DECIDE);
+			out.writeInt(state.length);
+			for (double f : state) {
+				out.writeDouble(f);
+			}
+			out.flush();
+
+			double[] activations = new double[in.readInt()];
+			for (int i = 0; i < activations.length; i++) {
+				activations[i] = in.readDouble();
+			}
+			return sampler.sample(activations);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Lost connection to the inference server", e);
+		}
+	}
+
+	@Override
+	public void startFlight(long seed) {
+		sampler.startFlight(seed);
+	}
+
+	/**
+	 * The model is owned and trained by the server process, not by its clients,
+	 * so recorded samples are ignored.
+	 */
+	@Override
+	public void trainNetwork(List<TrainingSample> trainingData, int epochs) {
+		skipTraining(trainingData.size());
+	}
+
+	@Override
+	public void trainNetwork(TrainingDataBuffer buffer, int epochs) {
+		skipTraining(buffer.size());
+	}
+
+	private static void skipTraining(int samples) {
+		System.out.println("[INFO] Remote autopilot: ignoring " + samples + " training samples; the inference server owns the model");
+	}
+
+	/**
+	 * Asks the server for its latency and batch-size summary.
+	 */
+	public String fetchServerStats() throws IOException {
+		out.writeInt(InferenceServer.OP_STATS);
+		out.flush();
+		return in.readUTF();
+	}
+
+	@Override
+	public void close() throws IOException {
+		socket.close();
+	}
+}
@@ -1,7 +1,6 @@
 package ie.atu.sw.autopilot;
 
 import org.encog.ml.data.MLDataSet;
-import org.encog.ml.train.MLTrain;
 import org.encog.neural.networks.BasicNetwork;
 import org.encog.neural.networks.training.propagation.resilient.ResilientPropagation;
 
@@ -9,20 +8,36 @@ public class Trainer {
 	private final BasicNetwork network;
 	private final MLDataSet trainingSet;
 	private final int epochs;
+	private final int threadCount;
+	private final int logInterval;
 
 	public Trainer(BasicNetwork network, MLDataSet trainingSet, int epochs) {
+		this(network, trainingSet, epochs, 0, 1);
+	}
+
+	/**
+	 * @param threadCount the number of RPROP worker threads, or 0 to let Encog use every core
+	 * @param logInterval print progress every this many epochs, or 0 to only print the final error
+	 */
+	public Trainer(BasicNetwork network, MLDataSet trainingSet, int epochs, int threadCount, int logInterval) {
 		this.network = network;
 		this.trainingSet = trainingSet;
 		this.epochs = epochs;
+		this.threadCount = threadCount;
+		this.logInterval = logInterval;
 	}
 
 	public void train() {
-	    MLTrain trainer = new ResilientPropagation(network, trainingSet);
+	    ResilientPropagation trainer = new ResilientPropagation(network, trainingSet);
+	    trainer.setThreadCount(threadCount);
 	    for (int epoch = 0; epoch < epochs; epoch++) {
 	        long startTime = System.currentTimeMillis(); // Start timing
 	        trainer.iteration();
 	        long epochTime = System.currentTimeMillis() - startTime; // Time taken for this epoch
 	        
+	        if (logInterval <= 0 || (epoch + 1) % logInterval != 0) {
+	            continue;
+	        }
 	        double error = trainer.getError();
 	        System.out.println("Epoch " + (epoch + 1) 
 	                + " | Error: " + error 
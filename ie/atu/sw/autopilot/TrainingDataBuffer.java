@@ -4,16 +4,37 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+import org.encog.ml.data.MLData;
+import org.encog.ml.data.MLDataPair;
+import org.encog.ml.data.MLDataSet;
+import org.encog.ml.data.basic.BasicMLData;
+import org.encog.ml.data.basic.BasicMLDataPair;
 
 /**
  * A data‐oriented container that aggregates training examples in contiguous lists.
- * This allows conversion into dense primitive arrays before training, which is
- * more cache friendly.
+ * Samples are kept in segments, one per run of {@link #addSample} calls, so that a
+ * whole flight can be handed to another buffer with {@link #transferTo} without
+ * touching its rows, and so that {@link #asDataSet} can train on the stored arrays
+ * in place.
  */
 public class TrainingDataBuffer {
-	private final List<double[]> featureList = new ArrayList<>();
-	private final List<double[]> labelList = new ArrayList<>();
+	private static final double[] NEUTRAL = toOneHot(0); // shared, never written
+
+	private List<Segment> segments = new ArrayList<>();
+	private int[] segmentStarts = new int[8]; // index of the first sample of each segment
+	private int size;
+
+	// The rows of one segment; only the last segment of a buffer grows.
+	private static final class Segment {
+		final List<double[]> features = new ArrayList<>();
+		final List<double[]> labels = new ArrayList<>();
+	}
 
 	/**
 	 * Adds a new training sample.
@@ -22,37 +43,159 @@ public class TrainingDataBuffer {
 	 * @param label    the one-hot encoded label vector.
 	 */
 	public void addSample(double[] features, double[] label) {
-		featureList.add(features);
-		labelList.add(label);
+		if (segments.isEmpty()) {
+			appendSegment(new Segment());
+		}
+		Segment last = segments.get(segments.size() - 1);
+		last.features.add(features);
+		last.labels.add(label);
+		size++;
+	}
+
+	/**
+	 * Moves every sample into the target buffer and leaves this buffer empty.
+	 * Rows are not copied: the target takes over this buffer's segments, so the
+	 * cost depends on the number of segments (one per flight), not on the number
+	 * of samples.
+	 */
+	public void transferTo(TrainingDataBuffer target) {
+		if (target == this) {
+			return;
+		}
+		for (Segment segment : segments) {
+			if (!segment.features.isEmpty()) {
+				target.appendSegment(segment);
+			}
+		}
+		segments = new ArrayList<>();
+		size = 0;
+	}
+
+	private void appendSegment(Segment segment) {
+		int index = segments.size();
+		if (index == segmentStarts.length) {
+			segmentStarts = Arrays.copyOf(segmentStarts, index * 2);
+		}
+		segmentStarts[index] = size;
+		segments.add(segment);
+		size += segment.features.size();
+	}
+
+	// The position in segments of the segment holding the sample at the given index.
+	private int segmentIndexFor(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Sample " + index + " of " + size);
+		}
+		// Segments are never empty, so starts are distinct; a miss lands just after the owner.
+		int found = Arrays.binarySearch(segmentStarts, 0, segments.size(), index);
+		return found >= 0 ? found : -found - 2;
+	}
+
+	/**
+	 * Returns the features of one sample. The array is the one that was added, not a copy.
+	 */
+	public double[] getFeatures(int index) {
+		int s = segmentIndexFor(index);
+		return segments.get(s).features.get(index - segmentStarts[s]);
+	}
+
+	/**
+	 * Returns the one-hot label of one sample. The array is the one that was added, not a copy.
+	 */
+	public double[] getLabel(int index) {
+		int s = segmentIndexFor(index);
+		return segments.get(s).labels.get(index - segmentStarts[s]);
+	}
+
+	/**
+	 * A read-only Encog view of the stored samples, for training without building a
+	 * {@link org.encog.ml.data.basic.BasicMLDataSet}. Records point straight at the
+	 * stored arrays; the buffer must not change while the view is in use.
+	 *
+	 * @param neutral samples it accepts are presented with the neutral label
+	 *                (no movement) instead of their own, or null to keep every label
+	 */
+	public MLDataSet asDataSet(Predicate<double[]> neutral) {
+		return new DataSetView(neutral);
+	}
+
+	/**
+	 * Convert a movement (–1, 0, 1) to a one-hot vector of length 3.
+	 * up   (–1) → [1, 0, 0]
+	 * stay ( 0) → [0, 1, 0]
+	 * down ( 1) → [0, 0, 1]
+	 */
+	public static double[] toOneHot(int movement) {
+		double[] labelOneHot = new double[3];
+		if (movement == -1) {
+			labelOneHot[0] = 1.0;
+		} else if (movement == 0) {
+			labelOneHot[1] = 1.0;
+		} else {
+			labelOneHot[2] = 1.0;
+		}
+		return labelOneHot;
+	}
+
+	/**
+	 * Maps a one-hot vector back to an integer movement.
+	 * [1,0,0] → -1; [0,1,0] → 0; [0,0,1] → 1
+	 */
+	public static int toMovement(double[] oneHot) {
+		if (oneHot[0] > 0.5) return -1;
+		if (oneHot[1] > 0.5) return 0;
+		return 1;
+	}
+
+	/**
+	 * Converts the stored samples into the form taken by
+	 * {@link IAutopilotController#trainNetwork(List, int)}. Feature arrays are shared, not copied.
+	 */
+	public List<TrainingSample> toTrainingSamples() {
+		List<TrainingSample> samples = new ArrayList<>(size);
+		for (Segment segment : segments) {
+			for (int i = 0; i < segment.features.size(); i++) {
+				samples.add(new TrainingSample(segment.features.get(i), toMovement(segment.labels.get(i))));
+			}
+		}
+		return samples;
 	}
 
 	/**
 	 * Returns the features as a 2D array.
 	 */
 	public double[][] getFeaturesArray() {
-		return featureList.toArray(new double[featureList.size()][]);
+		List<double[]> all = new ArrayList<>(size);
+		for (Segment segment : segments) {
+			all.addAll(segment.features);
+		}
+		return all.toArray(new double[size][]);
 	}
 
 	/**
 	 * Returns the labels as a 2D array.
 	 */
 	public double[][] getLabelArray() {
-		return labelList.toArray(new double[labelList.size()][]);
+		List<double[]> all = new ArrayList<>(size);
+		for (Segment segment : segments) {
+			all.addAll(segment.labels);
+		}
+		return all.toArray(new double[size][]);
 	}
 
 	/**
 	 * The number of samples stored.
 	 */
 	public int size() {
-		return featureList.size();
+		return size;
 	}
 
 	/**
 	 * Clears all stored samples.
 	 */
 	public void clear() {
-		featureList.clear();
-		labelList.clear();
+		segments = new ArrayList<>();
+		size = 0;
 	}
 	
 	/**
@@ -64,46 +207,156 @@ public class TrainingDataBuffer {
      */
     public void saveToCSV(String filePath, int featureCount) {
         try (PrintWriter pw = new PrintWriter(new FileWriter(filePath))) {
-            // Build and write the header row (f1, f2, ... fN, label)
-            StringBuilder header = new StringBuilder();
-            for (int i = 1; i <= featureCount; i++) {
-                header.append("f").append(i).append(",");
-            }
-            header.append("label");
-            pw.println(header.toString());
+            pw.println(csvHeader(featureCount));
+            writeRows(pw, "");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * The header row written by {@link #saveToCSV(String, int)}: "f1,f2,...,fN,label".
+     */
+    public static String csvHeader(int featureCount) {
+        StringBuilder header = new StringBuilder();
+        for (int i = 1; i <= featureCount; i++) {
+            header.append("f").append(i).append(",");
+        }
+        header.append("label");
+        return header.toString();
+    }
 
-            // Now write each sample row
-            for (int i = 0; i < featureList.size(); i++) {
-                double[] features = featureList.get(i);
-                double[] labels = labelList.get(i); // one-hot or possibly single value
+    /**
+     * Writes one CSV row per sample: the features followed by the movement label.
+     *
+     * @param prefix text written at the start of every row, e.g. a key column ending in ','
+     */
+    public void writeRows(PrintWriter pw, String prefix) {
+        for (Segment segment : segments) {
+            for (int i = 0; i < segment.features.size(); i++) {
+                double[] features = segment.features.get(i);
 
                 // Print features
-                StringBuilder row = new StringBuilder();
+                StringBuilder row = new StringBuilder(prefix);
                 for (double f : features) {
                     row.append(f).append(",");
                 }
 
-                // If you're storing single movement labels (e.g. -1,0,1), you’d adapt accordingly.
-                // Here labelList is one-hot, so pick the index of the ‘1’ if needed.
-                int movementIndex = -1; 
-                for (int j = 0; j < labels.length; j++) {
-                    if (labels[j] == 1.0) {
-                        movementIndex = j;
-                        break;
-                    }
-                }
-                // movementIndex: 0 -> -1 (up), 1 -> 0 (straight), 2 -> 1 (down)
-                int movement;
-                if (movementIndex == 0) movement = -1;
-                else if (movementIndex == 2) movement = 1;
-                else movement = 0;
-
-                row.append(movement);
+                // Labels are one-hot: 0 -> -1 (up), 1 -> 0 (straight), 2 -> 1 (down)
+                row.append(toMovement(segment.labels.get(i)));
 
                 pw.println(row.toString());
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
     }
+
+	/*
+	 * The view returned by asDataSet. Encog's multi-threaded trainers call
+	 * openAdditional() once per worker and then getRecord() over a contiguous
+	 * index range, so each view remembers the segment it last read and walks
+	 * forward from there instead of searching for every record.
+	 */
+	private final class DataSetView implements MLDataSet {
+		private final Predicate<double[]> neutral;
+		private int segment;      // cursor: segment of the last record read
+		private int segmentStart; // its first index
+		private int segmentEnd;   // one past its last index; 0 before the first read
+
+		DataSetView(Predicate<double[]> neutral) {
+			this.neutral = neutral;
+		}
+
+		@Override
+		public void getRecord(long index, MLDataPair pair) {
+			int i = (int) index;
+			if (i < segmentStart || i >= segmentEnd) {
+				segment = segmentIndexFor(i);
+				segmentStart = segmentStarts[segment];
+				segmentEnd = segmentStart + segments.get(segment).features.size();
+			}
+			Segment current = segments.get(segment);
+			int offset = i - segmentStart;
+			double[] features = current.features.get(offset);
+			pair.setInputArray(features);
+			pair.setIdealArray(neutral != null && neutral.test(features) ? NEUTRAL : current.labels.get(offset));
+		}
+
+		@Override
+		public MLDataPair get(int index) {
+			MLDataPair pair = new BasicMLDataPair(new BasicMLData(0), new BasicMLData(0));
+			getRecord(index, pair);
+			return pair;
+		}
+
+		@Override
+		public long getRecordCount() {
+			return size;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public int getInputSize() {
+			return size > 0 ? getFeatures(0).length : 0;
+		}
+
+		@Override
+		public int getIdealSize() {
+			return NEUTRAL.length;
+		}
+
+		@Override
+		public boolean isSupervised() {
+			return true;
+		}
+
+		@Override
+		public MLDataSet openAdditional() {
+			return new DataSetView(neutral);
+		}
+
+		@Override
+		public Iterator<MLDataPair> iterator() {
+			return new Iterator<MLDataPair>() {
+				private final DataSetView cursor = new DataSetView(neutral);
+				private int next;
+
+				@Override
+				public boolean hasNext() {
+					return next < size;
+				}
+
+				@Override
+				public MLDataPair next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					return cursor.get(next++);
+				}
+			};
+		}
+
+		@Override
+		public void add(MLData data) {
+			throw new UnsupportedOperationException("TrainingDataBuffer views are read-only");
+		}
+
+		@Override
+		public void add(MLData input, MLData ideal) {
+			throw new UnsupportedOperationException("TrainingDataBuffer views are read-only");
+		}
+
+		@Override
+		public void add(MLDataPair pair) {
+			throw new UnsupportedOperationException("TrainingDataBuffer views are read-only");
+		}
+
+		@Override
+		public void close() {
+			// Nothing to release; the buffer owns the storage.
+		}
+	}
 }
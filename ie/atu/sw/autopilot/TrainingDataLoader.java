@@ -0,0 +1,423 @@
+package ie.atu.sw.autopilot;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads training CSV files written by {@link TrainingDataBuffer#saveToCSV}
+ * ("f1,...,fN,label" header, one sample per row) back into memory.
+ * <p>
+ * The file is memory-mapped and split into line-aligned chunks that are
+ * parsed in parallel, one task per chunk. Numbers are parsed straight from
+ * the mapped bytes into flat primitive arrays; the common case of up to 18
+ * significant digits and a small exponent is converted with a single exact
+ * multiplication or division, which rounds identically to
+ * {@link Double#parseDouble}. Anything else falls back to
+ * {@code Double.parseDouble} for that one value.
+ * <p>
+ * Each chunk is sized from the length of its first row and dropped as soon
+ * as its rows have been copied out, so loading needs little more heap than
+ * the loaded rows themselves.
+ * <p>
+ * Column-stream files written by {@link ColumnStreamBuffer#writeFlight} are
+ * recognised by their header and read with {@link #loadColumnStream}; the
+ * dense loaders materialize them when a caller needs full rows.
+ */
+public class TrainingDataLoader {
+	private static final int CHUNKS_PER_THREAD = 4;
+	private static final long MAX_CHUNK_BYTES = 1L << 30; // Stay well below the 2 GB mapping limit.
+	private static final double[] POW10 = new double[23];   // 10^0 .. 10^22 are exact doubles
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	static {
+		POW10[0] = 1;
+		for (int i = 1; i < POW10.length; i++) {
+			POW10[i] = POW10[i - 1] * 10;
+		}
+	}
+
+	private final int threads;
+
+	public TrainingDataLoader() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public TrainingDataLoader(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Loads a training CSV as samples with -1/0/1 movement labels.
+	 *
+	 * @param expectedFeatureCount the network input size the header must match
+	 */
+	public List<TrainingSample> loadSamples(String filePath, int expectedFeatureCount) throws IOException {
+		if (isColumnStream(filePath)) {
+			return loadColumnStream(filePath, expectedFeatureCount).toTrainingDataBuffer().toTrainingSamples();
+		}
+		List<Chunk> chunks = load(filePath, expectedFeatureCount);
+		List<TrainingSample> samples = new ArrayList<>();
+		for (int c = 0; c < chunks.size(); c++) {
+			Chunk chunk = chunks.set(c, null); // released once its rows are copied
+			for (int r = 0; r < chunk.rows; r++) {
+				samples.add(new TrainingSample(chunk.row(r), chunk.labels[r]));
+			}
+		}
+		return samples;
+	}
+
+	/**
+	 * Loads a training CSV into a buffer with one-hot labels.
+	 *
+	 * @param expectedFeatureCount the network input size the header must match
+	 */
+	public TrainingDataBuffer loadBuffer(String filePath, int expectedFeatureCount) throws IOException {
+		if (isColumnStream(filePath)) {
+			return loadColumnStream(filePath, expectedFeatureCount).toTrainingDataBuffer();
+		}
+		List<Chunk> chunks = load(filePath, expectedFeatureCount);
+		TrainingDataBuffer buffer = new TrainingDataBuffer();
+		for (int c = 0; c < chunks.size(); c++) {
+			Chunk chunk = chunks.set(c, null); // released once its rows are copied
+			for (int r = 0; r < chunk.rows; r++) {
+				buffer.addSample(chunk.row(r), TrainingDataBuffer.toOneHot((int) chunk.labels[r]));
+			}
+		}
+		return buffer;
+	}
+
+	/**
+	 * Loads every flight of a column-stream file, such as the output of
+	 * {@code ShardMerger}, into one buffer without expanding the samples.
+	 *
+	 * @param expectedFeatureCount the network input size the file's layout must match
+	 */
+	public ColumnStreamBuffer loadColumnStream(String filePath, int expectedFeatureCount) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filePath)))) {
+			ColumnStreamBuffer stream = ColumnStreamBuffer.readHeader(in);
+			if (stream.getFeatureCount() != expectedFeatureCount) {
+				throw new IOException(filePath + " has " + stream.getFeatureCount()
+						+ " features but the network expects " + expectedFeatureCount);
+			}
+			while (stream.readFlight(in) != ColumnStreamBuffer.NO_FLIGHT) {
+				// Each flight is appended to the same buffer.
+			}
+			return stream;
+		}
+	}
+
+	/**
+	 * Whether the file starts with a column-stream header rather than a CSV header.
+	 */
+	public static boolean isColumnStream(String filePath) throws IOException {
+		try (InputStream in = new FileInputStream(filePath)) {
+			return ColumnStreamBuffer.isColumnStream(in.readNBytes(4));
+		}
+	}
+
+	private List<Chunk> load(String filePath, int expectedFeatureCount) throws IOException {
+		try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+			long size = channel.size();
+			long dataStart = nextLineStart(channel, 0);
+			String header = readAscii(channel, 0, dataStart).trim();
+			int featureCount = featureCount(header);
+			if (featureCount != expectedFeatureCount) {
+				throw new IOException(filePath + " has " + featureCount + " features but the network expects "
+						+ expectedFeatureCount);
+			}
+
+			// Line-aligned chunk boundaries.
+			long dataBytes = size - dataStart;
+			int chunkCount = (int) Math.max(threads * CHUNKS_PER_THREAD, (dataBytes + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES);
+			chunkCount = (int) Math.max(1, Math.min(chunkCount, dataBytes));
+			long[] bounds = new long[chunkCount + 1];
+			bounds[0] = dataStart;
+			bounds[chunkCount] = size;
+			for (int i = 1; i < chunkCount; i++) {
+				bounds[i] = Math.max(bounds[i - 1], nextLineStart(channel, dataStart + dataBytes * i / chunkCount));
+			}
+
+			ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, chunkCount));
+			try {
+				List<Future<Chunk>> futures = new ArrayList<>(chunkCount);
+				for (int i = 0; i < chunkCount; i++) {
+					long start = bounds[i];
+					long length = bounds[i + 1] - start;
+					MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+					futures.add(pool.submit(() -> new Chunk(buffer, start, featureCount)));
+				}
+				List<Chunk> chunks = new ArrayList<>(chunkCount);
+				for (Future<Chunk> future : futures) {
+					chunks.add(future.get());
+				}
+				return chunks;
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException io) {
+					throw new IOException(filePath + ": " + io.getMessage(), io);
+				}
+				throw new IOException(filePath + ": failed to parse", e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while loading " + filePath, e);
+			} finally {
+				pool.shutdown();
+			}
+		}
+	}
+
+	// "f1,...,fN,label" -> N
+	private static int featureCount(String header) throws IOException {
+		if (!header.endsWith("label")) {
+			throw new IOException("Missing \"f1,...,fN,label\" header, found: "
+					+ header.substring(0, Math.min(header.length(), 40)));
+		}
+		int columns = 1;
+		for (int i = 0; i < header.length(); i++) {
+			if (header.charAt(i) == ',') {
+				columns++;
+			}
+		}
+		return columns - 1;
+	}
+
+	// The offset just after the next '\n' at or after position, or the file size.
+	private static long nextLineStart(FileChannel channel, long position) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		long size = channel.size();
+		while (position < size) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	private static String readAscii(FileChannel channel, long start, long end) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+		channel.read(buffer, start);
+		return new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+	}
+
+	/*
+	 * The rows of one line-aligned slice of the file, parsed into a flat
+	 * row-major feature array and a label array.
+	 */
+	private static final class Chunk {
+		private final ByteBuffer buffer;
+		private final long fileOffset;
+		private final int featureCount;
+		private int pos = 0;
+
+		double[] features;
+		double[] labels;
+		int rows = 0;
+
+		Chunk(ByteBuffer buffer, long fileOffset, int featureCount) throws IOException {
+			this.buffer = buffer;
+			this.fileOffset = fileOffset;
+			this.featureCount = featureCount;
+			int estimate = estimateRows();
+			this.features = new double[estimate * featureCount];
+			this.labels = new double[estimate];
+			parse();
+		}
+
+		double[] row(int r) {
+			return Arrays.copyOfRange(features, r * featureCount, (r + 1) * featureCount);
+		}
+
+		// Rows in the chunk if they are all as long as the first one; parse() grows the arrays if not.
+		private int estimateRows() {
+			int limit = buffer.limit();
+			int start = 0;
+			while (start < limit && (buffer.get(start) == '\n' || buffer.get(start) == '\r')) {
+				start++;
+			}
+			int end = start;
+			while (end < limit && buffer.get(end) != '\n') {
+				end++;
+			}
+			return Math.max(16, limit / Math.max(1, end + 1 - start) + 1);
+		}
+
+		private void parse() throws IOException {
+			int limit = buffer.limit();
+			while (pos < limit) {
+				byte b = buffer.get(pos);
+				if (b == '\n' || b == '\r') {
+					pos++; // blank line or CRLF remainder
+					continue;
+				}
+				if (rows == labels.length) {
+					int capacity = rows + rows / 2 + 1;
+					labels = Arrays.copyOf(labels, capacity);
+					features = Arrays.copyOf(features, capacity * featureCount);
+				}
+				int base = rows * featureCount;
+				for (int col = 0; col < featureCount; col++) {
+					features[base + col] = parseNumber();
+					expect(',');
+				}
+				labels[rows] = parseNumber();
+				if (pos < limit && buffer.get(pos) != '\n' && buffer.get(pos) != '\r') {
+					throw error("expected end of row");
+				}
+				rows++;
+			}
+		}
+
+		private void expect(char separator) throws IOException {
+			if (pos >= buffer.limit() || buffer.get(pos) != separator) {
+				throw error("expected '" + separator + "'");
+			}
+			pos++;
+		}
+
+		private double parseNumber() throws IOException {
+			int limit = buffer.limit();
+			int start = pos;
+			boolean negative = false;
+			if (pos < limit && (buffer.get(pos) == '-' || buffer.get(pos) == '+')) {
+				negative = buffer.get(pos) == '-';
+				pos++;
+			}
+
+			long mantissa = 0;
+			int exponent = 0;
+			int significant = 0;
+			boolean digits = false;
+			boolean exact = true;
+
+			// Integer part.
+			while (pos < limit) {
+				int d = buffer.get(pos) - '0';
+				if (d < 0 || d > 9) {
+					break;
+				}
+				digits = true;
+				if (significant < 18) {
+					mantissa = mantissa * 10 + d;
+					if (mantissa != 0) {
+						significant++;
+					}
+				} else {
+					exponent++;
+					exact &= d == 0;
+				}
+				pos++;
+			}
+
+			// Fraction.
+			if (pos < limit && buffer.get(pos) == '.') {
+				pos++;
+				while (pos < limit) {
+					int d = buffer.get(pos) - '0';
+					if (d < 0 || d > 9) {
+						break;
+					}
+					digits = true;
+					if (significant < 18) {
+						mantissa = mantissa * 10 + d;
+						exponent--;
+						if (mantissa != 0) {
+							significant++;
+						}
+					} else {
+						exact &= d == 0;
+					}
+					pos++;
+				}
+			}
+
+			// Exponent, as written by Double.toString for very small or large values.
+			if (digits && pos < limit && (buffer.get(pos) == 'E' || buffer.get(pos) == 'e')) {
+				pos++;
+				boolean negativeExponent = false;
+				if (pos < limit && (buffer.get(pos) == '-' || buffer.get(pos) == '+')) {
+					negativeExponent = buffer.get(pos) == '-';
+					pos++;
+				}
+				int e = 0;
+				boolean exponentDigits = false;
+				while (pos < limit) {
+					int d = buffer.get(pos) - '0';
+					if (d < 0 || d > 9) {
+						break;
+					}
+					exponentDigits = true;
+					e = Math.min(e * 10 + d, 100_000);
+					pos++;
+				}
+				if (!exponentDigits) {
+					return fallback(start);
+				}
+				exponent += negativeExponent ? -e : e;
+			}
+
+			if (!digits) {
+				return fallback(start); // NaN, Infinity or garbage
+			}
+
+			double value;
+			if (mantissa == 0) {
+				value = 0.0;
+			} else if (!exact || mantissa > MAX_EXACT_MANTISSA || exponent > 22 || exponent < -22) {
+				return fallback(start);
+			} else if (exponent >= 0) {
+				value = mantissa * POW10[exponent];
+			} else {
+				value = mantissa / POW10[-exponent];
+			}
+			return negative ? -value : value;
+		}
+
+		// Re-parses the token starting at start with Double.parseDouble.
+		private double fallback(int start) throws IOException {
+			int end = start;
+			int limit = buffer.limit();
+			while (end < limit) {
+				byte b = buffer.get(end);
+				if (b == ',' || b == '\n' || b == '\r') {
+					break;
+				}
+				end++;
+			}
+			byte[] token = new byte[end - start];
+			buffer.get(start, token);
+			pos = end;
+			try {
+				return Double.parseDouble(new String(token, StandardCharsets.US_ASCII));
+			} catch (NumberFormatException e) {
+				throw error("not a number");
+			}
+		}
+
+		private IOException error(String message) {
+			return new IOException(message + " at byte " + (fileOffset + pos));
+		}
+	}
+}